@@ -8,12 +8,18 @@ import org.slf4j.Marker;
 
 import java.util.List;
 
+/**
+ * the mutable values are only the defaults of {@link com.qiujie.config.ExperimentConfig}, a running simulation reads
+ * its own config
+ */
 public class Constants {
 
     public static String SIM_NAME = "Sim";
 
     public static final int USERS = 1;
     public static final boolean TRACE_FLAG = false;
+    // the clock read by the entities is rounded to 2 decimals
+    public static final int CLOCK_SCALE = 2;
 
     public static final int DCS = 10;
     public static final int DC_HOSTS = 10;
@@ -67,6 +73,12 @@ public class Constants {
 
     public static double LENGTH_FACTOR = 2e3;
 
+    // DAX files at least this large (bytes) are parsed in streaming mode
+    public static final long STREAMING_PARSE_THRESHOLD = 512 * 1024;
+
+    // the maximum number of threads parsing workflow files
+    public static int PARSE_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
     public static ContinuousDistribution RANDOM;
 
     public static final List<Double> RELIABILITY_FACTOR_LIST = List.of(0.992, 0.994, 0.996, 0.998);
@@ -104,4 +116,18 @@ public class Constants {
 
     public static boolean ENABLE_STARTUP = true;
 
+    // profile the event loop of the simulations and expose the profilers over JMX
+    public static boolean ENABLE_PROFILER = false;
+
+    // write the per-vm and per-job messages of each simulation as a binary trace into this directory instead of the
+    // log, see com.qiujie.util.TraceDecoder, null to log them
+    public static String SIM_TRACE_DIR = null;
+
+    // take a snapshot of the live metrics of each simulation every this many simulated seconds, see
+    // com.qiujie.metrics.MetricsRegistry, 0 to disable them
+    public static double METRICS_INTERVAL = 0;
+
+    // export the metrics snapshots of each simulation as csv and json lines into this directory, null to only keep them
+    public static String METRICS_DIR = null;
+
 }
@@ -0,0 +1,71 @@
+package com.qiujie.config;
+
+import com.qiujie.Constants;
+import com.qiujie.Constants.JobSequenceStrategyEnum;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.With;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
+
+import java.io.Serializable;
+
+/**
+ * the parameters of one simulation, attached to its {@link org.cloudbus.cloudsim.core.Simulation} so that simulations
+ * with different parameters can run concurrently
+ * <p>
+ * the fields are final but the random distribution is shared and stateful, the copies made by the withers sample the
+ * same sequence as the original unless they are given their own distribution
+ */
+@Getter
+@With
+@AllArgsConstructor
+public class ExperimentConfig implements Serializable {
+
+    private final String simName;
+
+    private final ContinuousDistribution random;
+
+    private final JobSequenceStrategyEnum jobSequenceStrategy;
+
+    private final int vms;
+
+    private final double lengthFactor;
+
+    private final double dcSchedulingInterval;
+
+    private final int maxRetryCount;
+
+    private final double reliabilityFactor;
+
+    private final double slackTimeFactor;
+
+    /**
+     * the config with the current values of the constants
+     */
+    public static ExperimentConfig fromConstants() {
+        return new ExperimentConfig(Constants.SIM_NAME, Constants.RANDOM, Constants.JOB_SEQUENCE_STRATEGY, Constants.VMS, Constants.LENGTH_FACTOR,
+                Constants.DC_SCHEDULING_INTERVAL, Constants.MAX_RETRY_COUNT, Constants.RELIABILITY_FACTOR, Constants.SLACK_TIME_FACTOR);
+    }
+
+    /**
+     * the config of the current simulation of the calling thread, if none is attached the constants are attached on
+     * the first call, so that the later calls are a plain lookup
+     */
+    public static ExperimentConfig current() {
+        ExperimentConfig config = CloudSim.getSimulation().getAttribute(ExperimentConfig.class);
+        if (config == null) {
+            config = fromConstants();
+            config.attach();
+        }
+        return config;
+    }
+
+    /**
+     * attach the config to the current simulation of the calling thread, which takes the sim name as its name
+     */
+    public void attach() {
+        CloudSim.getSimulation().setAttribute(ExperimentConfig.class, this);
+        CloudSim.getSimulation().setName(simName);
+    }
+}
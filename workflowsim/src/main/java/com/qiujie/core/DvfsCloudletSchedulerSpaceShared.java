@@ -2,8 +2,13 @@ package com.qiujie.core;
 
 import static com.qiujie.Constants.*;
 
+import com.qiujie.config.ExperimentConfig;
 import com.qiujie.entity.Job;
+import com.qiujie.jfr.CloudletFinishEvent;
+import com.qiujie.jfr.CloudletRetryEvent;
+import com.qiujie.metrics.MetricsRegistry;
 import com.qiujie.util.ExperimentUtil;
+import com.qiujie.util.SimTrace;
 import lombok.extern.slf4j.Slf4j;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.CloudletSchedulerSpaceShared;
@@ -15,12 +20,15 @@ import java.util.List;
 @Slf4j
 public class DvfsCloudletSchedulerSpaceShared extends CloudletSchedulerSpaceShared {
 
+    // the vm of the submitted jobs, or -1 if none has been submitted
+    private int vmId = -1;
 
     @Override
     public double updateCloudletsProcessing(double currentTime, List<Double> mipsShare) {
         setCurrentMipsShare(mipsShare);
 
         double timeSpan = currentTime - getPreviousTime(); // time since last update
+        MetricsRegistry metrics = MetricsRegistry.current();
 
         // Update cloudlets in exec list
         for (Cloudlet cl : getCloudletExecList()) {
@@ -29,7 +37,11 @@ public class DvfsCloudletSchedulerSpaceShared extends CloudletSchedulerSpaceShar
 
             Job job = (Job) cl;
             WorkflowDatacenter dc = (WorkflowDatacenter) job.getFv().getVm().getDatacenter();
-            job.updateElecCost(ExperimentUtil.calculateElecCost(dc.getElecPrice(), getPreviousTime(), currentTime, job.getFv().getPower()));
+            double elecCost = ExperimentUtil.calculateElecCost(dc.getElecPrice(), getPreviousTime(), currentTime, job.getFv().getPower());
+            job.updateElecCost(elecCost);
+            if (metrics != null) {
+                metrics.elecCostAccrued(dc.getId(), elecCost);
+            }
             double totalCurrentAllocatedMips = getTotalCurrentAllocatedMipsForCloudlet(cl, currentTime);
             double prevFinishedLength = job.getCloudletFinishedSoFar();
             cl.updateCloudletFinishedSoFar((long) (timeSpan * totalCurrentAllocatedMips * Consts.MILLION));
@@ -40,10 +52,19 @@ public class DvfsCloudletSchedulerSpaceShared extends CloudletSchedulerSpaceShar
                 execTimeSpan = Math.max(0, timeSpan - (transferLength - prevFinishedLength) / (totalCurrentAllocatedMips * Consts.MILLION));
             }
             double reliability = Math.exp(-job.getFv().getLambda() * execTimeSpan);
-            if (RANDOM.sample() < 1 - reliability && job.canRetry()) {
+            if (ExperimentConfig.current().getRandom().sample() < 1 - reliability && job.canRetry()) {
                 job.setCloudletLength(job.getCloudletFinishedSoFar() / Consts.MILLION + job.getLength());
                 job.updateRetryCount();
-                log.warn("{}: Retry {} for Job #{} {}", CloudSim.clock(), job.getRetryCount(), job.getCloudletId(), job.getName());
+                SimTrace trace = SimTrace.current();
+                if (trace != null) {
+                    trace.jobRetried(dc, job);
+                } else if (log.isWarnEnabled()) {
+                    log.warn("{}: Retry {} for Job #{} {}", CloudSim.clock(), job.getRetryCount(), job.getCloudletId(), job.getName());
+                }
+                CloudletRetryEvent.emit(currentTime, job, job.getRetryCount());
+                if (metrics != null) {
+                    metrics.jobRetried();
+                }
             }
         }
 
@@ -52,12 +73,14 @@ public class DvfsCloudletSchedulerSpaceShared extends CloudletSchedulerSpaceShar
             if (cl.isFinished()) {
                 cloudletJustFinishedList.add(cl);
                 cloudletFinish(cl);
+                CloudletFinishEvent.emit(currentTime, cl);
             }
         }
         getCloudletExecList().removeAll(cloudletJustFinishedList);
 
         if (getCloudletExecList().isEmpty() && getCloudletWaitingList().isEmpty()) {
             setPreviousTime(currentTime);
+            usageChanged(metrics, currentTime);
             return 0.0;
         }
 
@@ -65,6 +88,7 @@ public class DvfsCloudletSchedulerSpaceShared extends CloudletSchedulerSpaceShar
         // Update cloudlets in waiting list, if any
         updateWaitingCloudlets(currentTime, null);
         cloudletJustFinishedList.clear();
+        usageChanged(metrics, currentTime);
 
         // estimate finish time of cloudlets in the execution queue
         double nextEvent = Double.MAX_VALUE;
@@ -87,6 +111,7 @@ public class DvfsCloudletSchedulerSpaceShared extends CloudletSchedulerSpaceShar
     public double cloudletSubmit(Cloudlet cl, double fileTransferTime) {
 
         Job job = (Job) cl;
+        vmId = job.getGuestId();
 
         // calculate the expected time for cloudlet completion
         double capacity = getCapacity(job);
@@ -101,6 +126,7 @@ public class DvfsCloudletSchedulerSpaceShared extends CloudletSchedulerSpaceShar
             cl.updateStatus(Cloudlet.CloudletStatus.INEXEC);
             getCloudletExecList().add(cl);
             usedPes += cl.getNumberOfPes();
+            usageChanged(MetricsRegistry.current(), CloudSim.clock());
         } else {// no enough free PEs: go to the waiting queue
             cl.updateStatus(Cloudlet.CloudletStatus.QUEUED);
             getCloudletWaitingList().add(cl);
@@ -111,6 +137,13 @@ public class DvfsCloudletSchedulerSpaceShared extends CloudletSchedulerSpaceShar
     }
 
 
+    private void usageChanged(MetricsRegistry metrics, double currentTime) {
+        if (metrics != null && vmId >= 0) {
+            metrics.vmUsageChanged(vmId, currentTime, usedPes, getCurrentPEs());
+        }
+    }
+
+
     @Override
     public double getTotalCurrentAvailableMipsForCloudlet(Cloudlet cl, List<Double> mipsShare) {
         return getCapacity((Job) cl) * cl.getNumberOfPes();
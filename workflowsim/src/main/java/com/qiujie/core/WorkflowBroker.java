@@ -4,15 +4,19 @@ package com.qiujie.core;
 import com.qiujie.entity.File;
 import com.qiujie.entity.Job;
 import com.qiujie.entity.Workflow;
+import com.qiujie.metrics.MetricsRegistry;
 import com.qiujie.planner.WorkflowPlannerAbstract;
 import com.qiujie.util.ExperimentUtil;
+import com.qiujie.util.SimTrace;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.cloudbus.cloudsim.*;
 import org.cloudbus.cloudsim.core.*;
 import org.cloudbus.cloudsim.lists.VmList;
 
+import java.io.Serializable;
 import java.util.*;
+import java.util.function.ToIntFunction;
 
 /**
  * WorkflowBroker
@@ -27,10 +31,23 @@ public class WorkflowBroker extends DatacenterBroker {
 
     private final WorkflowPlannerAbstract planner;
 
+    // the position of each job in the planner sequence
+    private final Map<Job, Integer> sequenceIndexMap;
+
+    // jobs whose parents have all returned, ordered by their position in the planner sequence
+    private final PriorityQueue<Job> readyQueue;
+
+    // the number of planned jobs that have not been submitted yet
+    private int waitingJobNum;
+
     public WorkflowBroker(Class<? extends WorkflowPlannerAbstract> clazz) throws Exception {
         super(WorkflowBroker.class.getSimpleName() + "_#" + CloudSim.getEntityList().size());
         this.planner = clazz.getDeclaredConstructor().newInstance();
         this.workflowList = new ArrayList<>();
+        this.sequenceIndexMap = new HashMap<>();
+        // serializable, as the queue is part of the snapshots of the simulation
+        this.readyQueue = new PriorityQueue<>(Comparator.comparingInt((ToIntFunction<Job> & Serializable) sequenceIndexMap::get));
+        this.waitingJobNum = 0;
     }
 
     public double getPlnElecCost() {
@@ -41,6 +58,10 @@ public class WorkflowBroker extends DatacenterBroker {
         return planner.getFinishTime();
     }
 
+    public List<Job> getPlnSequence() {
+        return planner.getSequence();
+    }
+
     public double getPlnRuntime() {
         return planner.getRuntime();
     }
@@ -62,17 +83,26 @@ public class WorkflowBroker extends DatacenterBroker {
      */
     @Override
     protected void processVmCreateAck(SimEvent ev) {
-        int[] data = (int[]) ev.getData();
-        int datacenterId = data[0];
-        int vmId = data[1];
-        int result = data[2];
+        AckPayload ack = (AckPayload) ev.getData();
+        int datacenterId = ack.getEntityId();
+        int vmId = ack.getObjectId();
         GuestEntity guest = VmList.getById(getGuestList(), vmId);
-        if (result == CloudSimTags.TRUE) {
+        if (ack.isSuccess()) {
             getVmsToDatacentersMap().put(vmId, datacenterId);
             getGuestsCreatedList().add(guest);
-            log.info("{}: {}: {} #{} has been created in Datacenter #{}, {} #{}", CloudSim.clock(), getName(), guest.getClassName(), vmId, datacenterId, guest.getHost().getClassName(), guest.getHost().getId());
+            SimTrace trace = SimTrace.current();
+            if (trace != null) {
+                trace.vmCreated(this, guest, datacenterId);
+            } else if (log.isInfoEnabled()) {
+                log.info("{}: {}: {} #{} has been created in Datacenter #{}, {} #{}", CloudSim.clock(), getName(), guest.getClassName(), vmId, datacenterId, guest.getHost().getClassName(), guest.getHost().getId());
+            }
         } else {
-            log.trace("{}: {}: Creation of {} #{} failed in Datacenter #{}", CloudSim.clock(), getName(), guest.getClassName(), vmId, datacenterId);
+            SimTrace trace = SimTrace.current();
+            if (trace != null) {
+                trace.vmCreationFailed(this, guest, datacenterId);
+            } else if (log.isTraceEnabled()) {
+                log.trace("{}: {}: Creation of {} #{} failed in Datacenter #{}", CloudSim.clock(), getName(), guest.getClassName(), vmId, datacenterId);
+            }
         }
 
         incrementVmsAcks();
@@ -114,9 +144,26 @@ public class WorkflowBroker extends DatacenterBroker {
         Cloudlet cloudlet = (Cloudlet) ev.getData();
         Job job = (Job) cloudlet;
         getCloudletReceivedList().add(cloudlet);
-        log.info("{}: {}: {} #{} {} return received, the number of finished Cloudlets is {}", CloudSim.clock(), getName(), cloudlet.getClass().getSimpleName(), cloudlet.getCloudletId(), job.getName(), getCloudletReceivedList().size());
+        SimTrace trace = SimTrace.current();
+        if (trace != null) {
+            trace.jobReturned(this, job, getCloudletReceivedList().size());
+        } else if (log.isInfoEnabled()) {
+            log.info("{}: {}: {} #{} {} return received, the number of finished Cloudlets is {}", CloudSim.clock(), getName(), cloudlet.getClass().getSimpleName(), cloudlet.getCloudletId(), job.getName(), getCloudletReceivedList().size());
+        }
         cloudletsSubmitted--;
-        if (getCloudletList().isEmpty() && cloudletsSubmitted == 0) { // all cloudlets executed
+        // only the children of the returned job can become ready
+        for (Job child : job.getChildList()) {
+            if (child.decrementPendingParentCount() == 0) {
+                child.setReadyTime(CloudSim.clock());
+                readyQueue.add(child);
+            }
+        }
+        MetricsRegistry metrics = MetricsRegistry.current();
+        if (metrics != null) {
+            metrics.jobWaited(job.getExecStartTime() - job.getReadyTime());
+            metrics.readyQueueChanged(readyQueue.size());
+        }
+        if (waitingJobNum == 0 && cloudletsSubmitted == 0) { // all cloudlets executed
             log.info("{}: {}: All Cloudlets executed. Finishing...", CloudSim.clock(), getName());
 //            clearDatacenters();
             finishExecution();
@@ -126,47 +173,76 @@ public class WorkflowBroker extends DatacenterBroker {
     }
 
     /**
-     * Submit cloudlets to the created VMs.
+     * Submit the ready jobs to the created VMs in the order of the planner sequence.
      *
      * @pre $none
      * @post $none
-     * @see #submitCloudletList(java.util.List)
+     * @see #submitJobList(java.util.List)
      */
     @Override
     protected void submitCloudlets() {
-        List<Cloudlet> successfullySubmitted = new ArrayList<>();
-        for (Cloudlet cloudlet : getCloudletList()) {
-            Job job = (Job) cloudlet;
-            // if its parents have not been finished, skip it
-            if (!new HashSet<>(getCloudletReceivedList()).containsAll(job.getParentList())) {
-                continue;
-            }
+        SimTrace trace = SimTrace.current();
+        List<Job> postponedList = new ArrayList<>();
+        while (!readyQueue.isEmpty()) {
+            Job job = readyQueue.poll();
             GuestEntity vm;
             // if user didn't bind this cloudlet and it has not been executed yet
-            if (cloudlet.getGuestId() == -1) {
+            if (job.getGuestId() == -1) {
                 // randomly select a VM
                 vm = ExperimentUtil.getRandomElement(getGuestsCreatedList());
             } else { // submit to the specific vm
-                vm = VmList.getById(getGuestsCreatedList(), cloudlet.getGuestId());
+                vm = VmList.getById(getGuestsCreatedList(), job.getGuestId());
                 if (vm == null) { // vm was not created
-                    vm = VmList.getById(getGuestList(), cloudlet.getGuestId()); // check if exists in the submitted list
+                    vm = VmList.getById(getGuestList(), job.getGuestId()); // check if exists in the submitted list
                     if (vm != null) {
-                        log.info("{}: {}: Postponing execution of cloudlet #{}: bount {} #{} not available", CloudSim.clock(), getName(), cloudlet.getCloudletId(), vm.getClassName(), vm.getId());
+                        log.info("{}: {}: Postponing execution of cloudlet #{}: bount {} #{} not available", CloudSim.clock(), getName(), job.getCloudletId(), vm.getClassName(), vm.getId());
                     } else {
-                        log.info("{}: {}: Postponing execution of cloudlet #{}: bount guest entity of id {} doesn't exist", CloudSim.clock(), getName(), cloudlet.getCloudletId(), cloudlet.getGuestId());
+                        log.info("{}: {}: Postponing execution of cloudlet #{}: bount guest entity of id {} doesn't exist", CloudSim.clock(), getName(), job.getCloudletId(), job.getGuestId());
                     }
+                    postponedList.add(job);
                     continue;
                 }
             }
-            log.info("{}: {}: Sending {} #{} {} to {} #{}", CloudSim.clock(), getName(), cloudlet.getClass().getSimpleName(), cloudlet.getCloudletId(), ((Job) cloudlet).getName(), vm.getClassName(), vm.getId());
-            cloudlet.setGuestId(vm.getId());
-            sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudActionTags.CLOUDLET_SUBMIT, cloudlet);
+            if (trace != null) {
+                trace.jobSubmitted(this, job, vm);
+            } else if (log.isInfoEnabled()) {
+                log.info("{}: {}: Sending {} #{} {} to {} #{}", CloudSim.clock(), getName(), job.getClass().getSimpleName(), job.getCloudletId(), job.getName(), vm.getClassName(), vm.getId());
+            }
+            job.setGuestId(vm.getId());
+            sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudActionTags.CLOUDLET_SUBMIT, job);
             cloudletsSubmitted++;
-            getCloudletSubmittedList().add(cloudlet);
-            successfullySubmitted.add(cloudlet);
+            waitingJobNum--;
+            getCloudletSubmittedList().add(job);
+        }
+        // postponed jobs are retried on the next submission
+        readyQueue.addAll(postponedList);
+        MetricsRegistry metrics = MetricsRegistry.current();
+        if (metrics != null) {
+            metrics.readyQueueChanged(readyQueue.size());
+        }
+    }
+
+
+    /**
+     * Queue the planned jobs. Jobs without parents are ready immediately, the others become ready once all their
+     * parents have returned.
+     *
+     * @param list the planner sequence
+     */
+    private void submitJobList(List<Job> list) {
+        for (Job job : list) {
+            sequenceIndexMap.put(job, sequenceIndexMap.size());
+            job.resetPendingParentCount();
+            if (job.getPendingParentCount() == 0) {
+                job.setReadyTime(CloudSim.clock());
+                readyQueue.add(job);
+            }
+        }
+        waitingJobNum += list.size();
+        MetricsRegistry metrics = MetricsRegistry.current();
+        if (metrics != null) {
+            metrics.readyQueueChanged(readyQueue.size());
         }
-        // remove submitted cloudlets from waiting list
-        getCloudletList().removeAll(successfullySubmitted);
     }
 
 
@@ -188,6 +264,15 @@ public class WorkflowBroker extends DatacenterBroker {
     }
 
 
+    /**
+     * the broker never waits for or selects deferred events, so its events are dispatched directly
+     */
+    @Override
+    protected boolean isDirectDispatch() {
+        return true;
+    }
+
+
     /**
      * run planning algorithm and pre-assign job to vm
      */
@@ -200,7 +285,7 @@ public class WorkflowBroker extends DatacenterBroker {
         planner.start();
         log.debug("{}: {}: Job schedule sequence {}", CloudSim.clock(), getName(), planner.getSequence().stream().map(Cloudlet::getCloudletId).toList());
         log.info("{}: {}: Starting submitting...", CloudSim.clock(), getName());
-        submitCloudletList(planner.getSequence());
+        submitJobList(planner.getSequence());
         submitCloudlets();
     }
 
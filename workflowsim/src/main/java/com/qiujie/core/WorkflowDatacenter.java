@@ -2,9 +2,11 @@
 package com.qiujie.core;
 
 import com.qiujie.Constants;
-import com.qiujie.entity.File;
 import com.qiujie.entity.Job;
+import com.qiujie.jfr.CloudletSubmitEvent;
+import com.qiujie.jfr.DatacenterUpdateEvent;
 import com.qiujie.util.ExperimentUtil;
+import com.qiujie.util.SimTrace;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.cloudbus.cloudsim.*;
@@ -56,12 +58,7 @@ public class WorkflowDatacenter extends Datacenter {
                 // Hence, this might cause CloudSim to be hanged since waiting
                 // for this Cloudlet back.
                 if (ack) {
-                    int[] data = new int[3];
-                    data[0] = getId();
-                    data[1] = cloudlet.getCloudletId();
-                    data[2] = CloudSimTags.FALSE;
-
-                    sendNow(cloudlet.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, data);
+                    sendAckNow(cloudlet.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, cloudlet.getCloudletId(), false);
                 }
 
                 sendNow(cloudlet.getUserId(), CloudActionTags.CLOUDLET_RETURN, cloudlet);
@@ -87,20 +84,21 @@ public class WorkflowDatacenter extends Datacenter {
             double fileTransferTime = predictFileTransferTime(job, (Host) host);
             job.setFileTransferTime(fileTransferTime);
             double estimatedProcessTime = scheduler.cloudletSubmit(cloudlet, fileTransferTime);
+            CloudletSubmitEvent.emit(CloudSim.clock(), cloudlet);
 
             // if this cloudlet is in the exec queue
             if (estimatedProcessTime > 0.0 && !Double.isInfinite(estimatedProcessTime)) {
                 send(getId(), estimatedProcessTime, CloudActionTags.VM_DATACENTER_EVENT);
             } else {
-                log.trace("{} {}: {} #{} is paused because not enough free PEs on {} #{}", CloudSim.clock(), getName(), cloudlet.getClass().getSimpleName(), cloudlet.getCloudletId(), vm.getClassName(), vm.getId());
+                SimTrace trace = SimTrace.current();
+                if (trace != null) {
+                    trace.jobQueued(this, job, vm);
+                } else if (log.isTraceEnabled()) {
+                    log.trace("{} {}: {} #{} is paused because not enough free PEs on {} #{}", CloudSim.clock(), getName(), cloudlet.getClass().getSimpleName(), cloudlet.getCloudletId(), vm.getClassName(), vm.getId());
+                }
             }
             if (ack) {
-                int[] data = new int[3];
-                data[0] = getId();
-                data[1] = cloudlet.getCloudletId();
-                data[2] = CloudSimTags.TRUE;
-
-                sendNow(cloudlet.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, data);
+                sendAckNow(cloudlet.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, cloudlet.getCloudletId(), true);
             }
         } catch (ClassCastException c) {
             log.error("{}: {}: processCloudletSubmit(): ClassCastException error.", CloudSim.clock(), getName());
@@ -114,6 +112,19 @@ public class WorkflowDatacenter extends Datacenter {
     }
 
 
+    /**
+     * update the processing of the cloudlets on the hosts, recorded as a jfr event
+     */
+    @Override
+    protected void updateCloudletProcessing() {
+        DatacenterUpdateEvent event = new DatacenterUpdateEvent();
+        event.begin();
+        super.updateCloudletProcessing();
+        event.end();
+        event.commitFor(CloudSim.clock(), getId());
+    }
+
+
     /**
      * predict the file transfer time
      *
@@ -124,15 +135,14 @@ public class WorkflowDatacenter extends Datacenter {
     private double predictFileTransferTime(Job job, Host host) {
         double predDateTransferTime = Double.MIN_VALUE;
         double temp;
-        for (Job parentJob : job.getParentList()) {
+        for (int i = 0; i < job.getParentList().size(); i++) {
+            Job parentJob = job.getParentList().get(i);
             Host parentHost = (Host) getVmAllocationPolicy().getHost(parentJob.getGuestId(), parentJob.getUserId());
             // if parentHost == null, indicate parent job is not in this datacenter
             if (parentHost == null) {
-                List<String> parentOutputFiles = parentJob.getOutputFileList().stream().map(com.qiujie.entity.File::getName).toList();
-                double dataSize = job.getPredInputFileList().stream().filter(file -> parentOutputFiles.contains(file.getName())).mapToDouble(File::getSize).sum();
-                temp = dataSize / Constants.INTER_BANDWIDTH;
+                temp = job.getParentDataSize(i) / Constants.INTER_BANDWIDTH;
             } else {
-                temp = ExperimentUtil.calculatePredecessorDataTransferTime(job, host, parentJob, parentHost);
+                temp = ExperimentUtil.calculatePredecessorDataTransferTime(job.getParentDataSize(i), host, parentHost);
             }
             predDateTransferTime = Math.max(predDateTransferTime, temp);
         }
@@ -141,6 +151,15 @@ public class WorkflowDatacenter extends Datacenter {
     }
 
 
+    /**
+     * the datacenter never waits for or selects deferred events, so its events are dispatched directly
+     */
+    @Override
+    protected boolean isDirectDispatch() {
+        return true;
+    }
+
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
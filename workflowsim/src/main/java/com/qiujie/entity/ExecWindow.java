@@ -3,10 +3,11 @@ package com.qiujie.entity;
 
 import lombok.Data;
 
+import java.io.Serializable;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Data
-public class ExecWindow {
+public class ExecWindow implements Serializable {
 
     private static final AtomicInteger nextId = new AtomicInteger(0);
 
@@ -3,14 +3,11 @@ package com.qiujie.entity;
 import lombok.Data;
 import org.cloudbus.cloudsim.Host;
 
+import java.io.Serializable;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
 
 @Data
-public class File {
-
-    private static final AtomicInteger nextId = new AtomicInteger(0);
-
+public class File implements Serializable {
 
     private int id;
     private String name;
@@ -20,7 +17,7 @@ public class File {
     private Host host;
 
     public File(String name, double size) {
-        this.id = nextId.getAndIncrement();
+        this.id = IdCounters.next(File.class);
         this.name = name;
         this.size = size;
     }
@@ -4,12 +4,13 @@ import lombok.Data;
 import lombok.experimental.Accessors;
 import org.cloudbus.cloudsim.Vm;
 
+import java.io.Serializable;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Data
 @Accessors(chain = true)
-public class Fv {
+public class Fv implements Serializable {
 
     private double frequency;
     private double mips;
@@ -17,6 +18,8 @@ public class Fv {
     // Transient fault arrival rate
     private double lambda;
     private int level;
+    // dense index over all (vm type, level) pairs
+    private int index;
     private Vm vm;
     private String type;
 
@@ -0,0 +1,31 @@
+package com.qiujie.entity;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * the next ids of the jobs, workflows and files of a simulation, attached to it so that the ids only depend on the
+ * order the simulation creates them, not on the simulations created meanwhile by other threads
+ */
+class IdCounters implements Serializable {
+
+    private final Map<Class<?>, Integer> nextIds = new HashMap<>();
+
+
+    /**
+     * @return the next id of the type in the current simulation of the calling thread, from 0
+     */
+    static int next(Class<?> type) {
+        IdCounters counters = CloudSim.getSimulation().getAttribute(IdCounters.class);
+        if (counters == null) {
+            counters = new IdCounters();
+            CloudSim.getSimulation().setAttribute(IdCounters.class, counters);
+        }
+        int id = counters.nextIds.getOrDefault(type, 0);
+        counters.nextIds.put(type, id + 1);
+        return id;
+    }
+}
@@ -1,6 +1,7 @@
 package com.qiujie.entity;
 
-import com.qiujie.Constants;
+import com.qiujie.config.ExperimentConfig;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.cloudbus.cloudsim.Cloudlet;
@@ -11,14 +12,11 @@ import org.cloudbus.cloudsim.Vm;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
 
 
 @Getter
 public class Job extends Cloudlet {
 
-    private static final AtomicInteger nextId = new AtomicInteger(0);
-
     private String name;
 
     private List<Job> parentList;
@@ -31,9 +29,17 @@ public class Job extends Cloudlet {
 
     private List<File> outputFileList;
 
+    // the size of the data received from each parent, in the same order as parentList
+    @Getter(AccessLevel.NONE)
+    private double[] parentDataSizes;
+
     // the original length of job
     private long length;
 
+    // the runtime in the DAX file the length was derived from, NaN if missing
+    @Setter
+    private double runtime = Double.NaN;
+
     @Setter
     private double fileTransferTime;
 
@@ -44,18 +50,29 @@ public class Job extends Cloudlet {
     @Setter
     private int depth;
 
+    // the position of the job in its workflow
+    @Setter
+    private int index;
+
     @Setter
     private Fv fv;
 
     @Setter
     private Vm vm;
 
+    // the number of parent jobs that have not returned yet
+    private int pendingParentCount;
+
+    // the time all parent jobs had returned
+    @Setter
+    private double readyTime;
+
     private Job(int cloudletId, long length, int pesNumber, long cloudletFileSize, long cloudletOutputSize, UtilizationModel utilizationModelCpu, UtilizationModel utilizationModelRam, UtilizationModel utilizationModelBw, boolean record) {
         super(cloudletId, length, pesNumber, cloudletFileSize, cloudletOutputSize, utilizationModelCpu, utilizationModelRam, utilizationModelBw, false);
     }
 
     public Job(String name, long length) {
-        this(nextId.getAndIncrement(), length, 1, 1, 1, new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull(), false);
+        this(IdCounters.next(Job.class), length, 1, 1, 1, new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull(), false);
         this.name = name;
         this.length = length;
         this.retryCount = 0;
@@ -65,6 +82,7 @@ public class Job extends Cloudlet {
         this.predInputFileList = new ArrayList<>();
         this.localInputFileList = new ArrayList<>();
         this.outputFileList = new ArrayList<>();
+        this.parentDataSizes = new double[0];
 
 
         this.count = 0;
@@ -74,6 +92,39 @@ public class Job extends Cloudlet {
         this.retryCount++;
     }
 
+    /**
+     * reset the pending parent count before the job is submitted
+     */
+    public void resetPendingParentCount() {
+        this.pendingParentCount = this.parentList.size();
+    }
+
+    /**
+     * @return the number of parent jobs that have still not returned
+     */
+    public int decrementPendingParentCount() {
+        return --this.pendingParentCount;
+    }
+
+    public void setParentDataSizes(double[] parentDataSizes) {
+        if (parentDataSizes.length != this.parentList.size()) {
+            throw new IllegalArgumentException(String.format("Job #%d has %d parents but %d data sizes", getCloudletId(), this.parentList.size(), parentDataSizes.length));
+        }
+        this.parentDataSizes = parentDataSizes;
+    }
+
+    /**
+     * @param parentIndex the position of the parent in parentList
+     * @return the size of the data received from the parent
+     */
+    public double getParentDataSize(int parentIndex) {
+        return this.parentDataSizes[parentIndex];
+    }
+
+    public double getParentDataSize(Job parentJob) {
+        return getParentDataSize(this.parentList.indexOf(parentJob));
+    }
+
     public void updateElecCost(double elecCost) {
         this.elecCost += elecCost;
     }
@@ -87,7 +138,7 @@ public class Job extends Cloudlet {
     }
 
     public boolean canRetry() {
-        return this.retryCount < Constants.MAX_RETRY_COUNT;
+        return this.retryCount < ExperimentConfig.current().getMaxRetryCount();
     }
 
     public void addChild(Job job) {
@@ -3,14 +3,12 @@ package com.qiujie.entity;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.io.Serializable;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 
 @Getter
-public class Workflow {
-
-    private static final AtomicInteger nextId = new AtomicInteger(0);
+public class Workflow implements Serializable {
 
     private final int id;
 
@@ -31,9 +29,12 @@ public class Workflow {
     private double reliGoal;
 
     public Workflow(String name, List<Job> jobList) {
-        this.id = nextId.getAndIncrement();
+        this.id = IdCounters.next(Workflow.class);
         this.name = name;
         this.jobList = jobList;
+        for (int i = 0; i < jobList.size(); i++) {
+            jobList.get(i).setIndex(i);
+        }
         this.jobNum = jobList.size();
         this.length = jobList.stream().mapToLong(Job::getLength).sum();
         this.depth = jobList.stream().mapToInt(Job::getDepth).max().orElse(0);
@@ -1,7 +1,6 @@
 package com.qiujie.example;
 
 import ch.qos.logback.classic.Level;
-import com.qiujie.aop.ClockModifier;
 import com.qiujie.entity.Job;
 import com.qiujie.entity.Workflow;
 import com.qiujie.core.WorkflowBroker;
@@ -12,6 +11,7 @@ import com.qiujie.util.WorkflowParser;
 import org.cloudbus.cloudsim.Datacenter;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.Simulation;
 import org.cloudbus.cloudsim.distributions.UniformDistr;
 
 import java.util.Calendar;
@@ -28,7 +28,7 @@ import static com.qiujie.Constants.*;
 public class Example01 {
     public static void main(String[] args) throws Exception {
         long send = System.currentTimeMillis();
-        ClockModifier.modifyClockMethod();
+        Simulation.setDefaultClockScale(CLOCK_SCALE);
         org.cloudbus.cloudsim.Log.disable();
         CloudSim.init(USERS, Calendar.getInstance(), TRACE_FLAG);
         Log.setLevel(Level.TRACE);
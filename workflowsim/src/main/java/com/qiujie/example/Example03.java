@@ -2,7 +2,6 @@
 package com.qiujie.example;
 
 import ch.qos.logback.classic.Level;
-import com.qiujie.aop.ClockModifier;
 import com.qiujie.entity.Job;
 import com.qiujie.entity.Workflow;
 import com.qiujie.core.WorkflowBroker;
@@ -13,6 +12,7 @@ import com.qiujie.util.WorkflowParser;
 import org.cloudbus.cloudsim.Datacenter;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.Simulation;
 import org.cloudbus.cloudsim.distributions.UniformDistr;
 
 import java.util.Calendar;
@@ -28,7 +28,7 @@ public class Example03 {
     public static void main(String[] args) throws Exception {
         long send = System.currentTimeMillis();
         RANDOM = new UniformDistr(0, 1, send);
-        ClockModifier.modifyClockMethod();
+        Simulation.setDefaultClockScale(CLOCK_SCALE);
         org.cloudbus.cloudsim.Log.disable();
         CloudSim.init(2, Calendar.getInstance(), TRACE_FLAG);
         Log.setLevel(Level.TRACE);
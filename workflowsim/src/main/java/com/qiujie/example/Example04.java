@@ -5,11 +5,11 @@ import ch.qos.logback.classic.Level;
 import com.qiujie.comparator.DepthComparator;
 import com.qiujie.comparator.JobNumComparator;
 import com.qiujie.comparator.LengthComparator;
-import com.qiujie.aop.ClockModifier;
 import com.qiujie.starter.SimStarter;
 import com.qiujie.planner.HEFTPlanner;
 import com.qiujie.util.ExperimentUtil;
 import com.qiujie.util.Log;
+import org.cloudbus.cloudsim.core.Simulation;
 import org.cloudbus.cloudsim.distributions.UniformDistr;
 
 import java.util.List;
@@ -25,7 +25,7 @@ import static com.qiujie.Constants.*;
 public class Example04 {
     public static void main(String[] args) throws Exception {
         long seed = System.currentTimeMillis();
-        ClockModifier.modifyClockMethod();
+        Simulation.setDefaultClockScale(CLOCK_SCALE);
         org.cloudbus.cloudsim.Log.disable();
         Log.setLevel(Level.ALL);
         List<String> daxPathList = List.of(
@@ -47,10 +47,11 @@ public class Example05 extends ExperimentStarter {
 
         MAX_RETRY_COUNT = 10;
 
-        List<SimStarter> simStarterList = List.of(
-                new SimStarter(new UniformDistr(0, 1, seed), daxPathList, HEFTPlanner.class)
-                ,new SimStarter(new UniformDistr(0, 1, seed), daxPathList, RandomPlanner.class)
-        );
+        // the simulations are independent, so run them on all cores
+        List<SimStarter> simStarterList = SimStarter.startAll(List.of(
+                () -> new SimStarter(new UniformDistr(0, 1, seed), daxPathList, HEFTPlanner.class)
+                , () -> new SimStarter(new UniformDistr(0, 1, seed), daxPathList, RandomPlanner.class)
+        ), Runtime.getRuntime().availableProcessors());
 
         simStarterList.forEach(SimStarter::printSimResult);
         simStarterList.forEach(SimStarter::generateSimGanttData);
@@ -0,0 +1,50 @@
+package com.qiujie.example;
+
+import com.qiujie.entity.Workflow;
+import com.qiujie.util.WorkflowParser;
+import com.sun.management.ThreadMXBean;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.function.Function;
+
+
+/**
+ * Compare the time and allocated memory of the DOM parser and the streaming parser
+ *
+ * @author qiujie
+ */
+public class WorkflowParserBenchmark {
+
+
+    public static void main(String[] args) {
+        String[] daxPaths = args.length > 0 ? args : new String[]{"data/dax/Montage_1000.xml", "data/dax/SIPHT_200.xml", "data/dax/CyberShake_1000.xml"};
+        int rounds = 20;
+        for (String daxPath : daxPaths) {
+            long fileSize = new File(daxPath).length();
+            // warm up both parsers
+            benchmark(daxPath, WorkflowParser::parseDom, rounds);
+            benchmark(daxPath, WorkflowParser::parseStream, rounds);
+            double[] dom = benchmark(daxPath, WorkflowParser::parseDom, rounds);
+            double[] stream = benchmark(daxPath, WorkflowParser::parseStream, rounds);
+            System.out.printf("%s (%d KB): dom %.2f ms / %.1f MB, stream %.2f ms / %.1f MB%n", new File(daxPath).getName(), fileSize / 1024, dom[0], dom[1], stream[0], stream[1]);
+        }
+    }
+
+
+    /**
+     * @return average time (ms) and allocated memory (MB) of a parse
+     */
+    private static double[] benchmark(String daxPath, Function<String, Workflow> parser, int rounds) {
+        ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            parser.apply(daxPath);
+        }
+        long time = System.nanoTime() - start;
+        allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocated;
+        return new double[]{time / 1e6 / rounds, allocated / 1048576.0 / rounds};
+    }
+}
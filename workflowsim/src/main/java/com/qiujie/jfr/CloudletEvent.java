@@ -0,0 +1,48 @@
+package com.qiujie.jfr;
+
+import com.qiujie.config.ExperimentConfig;
+import jdk.jfr.*;
+import org.cloudbus.cloudsim.Cloudlet;
+
+/**
+ * a step of the lifecycle of a cloudlet, recorded by jdk flight recorder
+ */
+@Category({"WorkflowSim", "Cloudlet"})
+@StackTrace(false)
+public abstract class CloudletEvent extends Event {
+
+    // protected, jfr only records the fields of a super class that the event class can access
+    @Label("Simulation")
+    protected String simName;
+
+    @Label("Simulation Time")
+    protected double simTime;
+
+    @Label("Cloudlet Id")
+    protected int cloudletId;
+
+    @Label("Broker Id")
+    protected int brokerId;
+
+    @Label("Datacenter Id")
+    protected int datacenterId;
+
+    @Label("Vm Id")
+    protected int vmId;
+
+
+    /**
+     * commit the event for the cloudlet if it is recorded, the fields are only filled in then
+     */
+    void commitFor(double simTime, Cloudlet cloudlet) {
+        if (shouldCommit()) {
+            this.simName = ExperimentConfig.current().getSimName();
+            this.simTime = simTime;
+            this.cloudletId = cloudlet.getCloudletId();
+            this.brokerId = cloudlet.getUserId();
+            this.datacenterId = cloudlet.getResourceId();
+            this.vmId = cloudlet.getGuestId();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.qiujie.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.cloudbus.cloudsim.Cloudlet;
+
+/**
+ * a cloudlet finished on its vm
+ */
+@Name("workflowsim.CloudletFinish")
+@Label("Cloudlet Finish")
+@Description("A cloudlet finished on its vm")
+public class CloudletFinishEvent extends CloudletEvent {
+
+    public static void emit(double simTime, Cloudlet cloudlet) {
+        new CloudletFinishEvent().commitFor(simTime, cloudlet);
+    }
+}
@@ -0,0 +1,25 @@
+package com.qiujie.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.cloudbus.cloudsim.Cloudlet;
+
+/**
+ * a cloudlet retried after a transient fault
+ */
+@Name("workflowsim.CloudletRetry")
+@Label("Cloudlet Retry")
+@Description("A cloudlet retried after a transient fault")
+public class CloudletRetryEvent extends CloudletEvent {
+
+    @Label("Retry Count")
+    private int retryCount;
+
+
+    public static void emit(double simTime, Cloudlet cloudlet, int retryCount) {
+        CloudletRetryEvent event = new CloudletRetryEvent();
+        event.retryCount = retryCount;
+        event.commitFor(simTime, cloudlet);
+    }
+}
@@ -0,0 +1,19 @@
+package com.qiujie.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.cloudbus.cloudsim.Cloudlet;
+
+/**
+ * a cloudlet submitted to a vm of a datacenter
+ */
+@Name("workflowsim.CloudletSubmit")
+@Label("Cloudlet Submit")
+@Description("A cloudlet submitted to a vm of a datacenter")
+public class CloudletSubmitEvent extends CloudletEvent {
+
+    public static void emit(double simTime, Cloudlet cloudlet) {
+        new CloudletSubmitEvent().commitFor(simTime, cloudlet);
+    }
+}
@@ -0,0 +1,38 @@
+package com.qiujie.jfr;
+
+import com.qiujie.config.ExperimentConfig;
+import jdk.jfr.*;
+
+/**
+ * a pass of a datacenter updating the processing of the cloudlets on its hosts, recorded by jdk flight recorder, the
+ * datacenter times the pass between {@link #begin()} and {@link #end()}
+ */
+@Name("workflowsim.DatacenterUpdate")
+@Label("Datacenter Update")
+@Category({"WorkflowSim", "Datacenter"})
+@Description("A pass updating the processing of the cloudlets of a datacenter")
+@StackTrace(false)
+public class DatacenterUpdateEvent extends Event {
+
+    @Label("Simulation")
+    private String simName;
+
+    @Label("Simulation Time")
+    private double simTime;
+
+    @Label("Datacenter Id")
+    private int datacenterId;
+
+
+    /**
+     * commit the ended pass if it is recorded, the fields are only filled in then
+     */
+    public void commitFor(double simTime, int datacenterId) {
+        if (shouldCommit()) {
+            this.simName = ExperimentConfig.current().getSimName();
+            this.simTime = simTime;
+            this.datacenterId = datacenterId;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.qiujie.jfr;
+
+import com.qiujie.entity.Workflow;
+import jdk.jfr.*;
+
+/**
+ * a phase of the planning of a workflow, recorded by jdk flight recorder
+ */
+@Name("workflowsim.PlanningPhase")
+@Label("Planning Phase")
+@Category({"WorkflowSim", "Planner"})
+@Description("A phase of the planning of a workflow")
+@StackTrace(false)
+public class PlanningPhaseEvent extends Event {
+
+    public enum Phase {
+        UPWARD_RANK,
+        EXEC_TIME_TABLE,
+        ALLOCATION
+    }
+
+    @Label("Simulation")
+    private String simName;
+
+    @Label("Simulation Time")
+    private double simTime;
+
+    @Label("Planner")
+    private String planner;
+
+    @Label("Phase")
+    private String phase;
+
+    @Label("Workflow Id")
+    private int workflowId;
+
+    @Label("Job Count")
+    private int jobNum;
+
+
+    /**
+     * run a phase of the planning of a workflow, timed as an event
+     */
+    public static void record(String simName, double simTime, String planner, Phase phase, Workflow workflow, Runnable action) {
+        PlanningPhaseEvent event = new PlanningPhaseEvent();
+        event.begin();
+        action.run();
+        event.end();
+        if (event.shouldCommit()) {
+            event.simName = simName;
+            event.simTime = simTime;
+            event.planner = planner;
+            event.phase = phase.name();
+            event.workflowId = workflow.getId();
+            event.jobNum = workflow.getJobNum();
+            event.commit();
+        }
+    }
+}
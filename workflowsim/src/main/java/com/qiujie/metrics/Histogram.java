@@ -0,0 +1,141 @@
+package com.qiujie.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a lock-free histogram of non-negative values with the log-linear buckets of an HDR histogram: the values are counted
+ * in units of the resolution, every power of two range of units is split into the same number of linear sub-buckets,
+ * so a value is kept to the given number of significant digits over the whole range of long
+ * <p>
+ * the values are recorded by the thread that runs the simulation, other threads can read the histogram meanwhile, a
+ * read racing a record may miss it
+ */
+public class Histogram {
+
+    // the value of one unit
+    private final double resolution;
+
+    // log2 of the number of sub-buckets of a bucket
+    private final int subBucketMagnitude;
+
+    private final int subBucketHalfCount;
+
+    private final long subBucketMask;
+
+    // the counts of the sub-buckets, the lower half of the first bucket is shared by no other bucket
+    private final AtomicLongArray counts;
+
+    private final LongAdder totalCount;
+
+    private final DoubleAdder sum;
+
+    // the largest value recorded, in units
+    private final AtomicLong max;
+
+
+    /**
+     * @param resolution        the smallest difference between two values told apart
+     * @param significantDigits the number of significant decimal digits kept, from 1 to 5
+     */
+    public Histogram(double resolution, int significantDigits) {
+        if (resolution <= 0 || significantDigits < 1 || significantDigits > 5) {
+            throw new IllegalArgumentException(String.format("Invalid histogram resolution %s or significant digits %d", resolution, significantDigits));
+        }
+        this.resolution = resolution;
+        // enough sub-buckets to tell apart values differing by one in the last significant digit
+        long largestSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        this.subBucketMagnitude = 64 - Long.numberOfLeadingZeros(largestSingleUnitResolution - 1);
+        this.subBucketHalfCount = 1 << (subBucketMagnitude - 1);
+        this.subBucketMask = (1L << subBucketMagnitude) - 1;
+        int bucketCount = 64 - subBucketMagnitude + 1;
+        this.counts = new AtomicLongArray(bucketCount * subBucketHalfCount);
+        this.totalCount = new LongAdder();
+        this.sum = new DoubleAdder();
+        this.max = new AtomicLong();
+    }
+
+
+    /**
+     * record a value, negative values are recorded as 0
+     */
+    public void record(double value) {
+        long units = Math.max(0, Math.round(value / resolution));
+        counts.incrementAndGet(countsIndex(units));
+        totalCount.increment();
+        sum.add(value);
+        max.accumulateAndGet(units, Math::max);
+    }
+
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : sum.sum() / count;
+    }
+
+    public double getMax() {
+        return max.get() * resolution;
+    }
+
+    /**
+     * the smallest value at or above the percentile of the recorded values, to the significant digits of the
+     * histogram
+     *
+     * @param percentile from 0 to 100
+     * @return 0 if nothing has been recorded
+     */
+    public double getValueAtPercentile(double percentile) {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+        long maxUnits = max.get();
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentUnits(i), maxUnits) * resolution;
+            }
+        }
+        return maxUnits * resolution;
+    }
+
+    /**
+     * clear the recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+
+    private int countsIndex(long units) {
+        // the bucket is the power of two range of the value above the range of the first bucket
+        int bucketIndex = 64 - subBucketMagnitude - Long.numberOfLeadingZeros(units | subBucketMask);
+        int subBucketIndex = (int) (units >>> bucketIndex);
+        return ((bucketIndex + 1) << (subBucketMagnitude - 1)) + subBucketIndex - subBucketHalfCount;
+    }
+
+    /**
+     * the largest value, in units, counted by the sub-bucket at the index
+     */
+    private long highestEquivalentUnits(int index) {
+        int bucketIndex = (index >> (subBucketMagnitude - 1)) - 1;
+        long subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return (subBucketIndex << bucketIndex) + (1L << bucketIndex) - 1;
+    }
+}
@@ -0,0 +1,87 @@
+package com.qiujie.metrics;
+
+import cn.hutool.json.JSONUtil;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * write the metrics snapshots of a simulation as they are taken, both as csv rows "time,metric,id,value", where the id
+ * is the vm or the datacenter of the per-vm and per-datacenter metrics, and as json lines, one snapshot per line
+ */
+public class MetricsExporter implements Closeable {
+
+    private final Path csvPath;
+
+    private final BufferedWriter csv;
+
+    private final BufferedWriter json;
+
+
+    /**
+     * create name.metrics.csv and name.metrics.jsonl in the directory, replacing the existing ones
+     */
+    public MetricsExporter(Path dir, String name) {
+        this.csvPath = dir.resolve(name + ".metrics.csv");
+        try {
+            Files.createDirectories(dir);
+            this.csv = Files.newBufferedWriter(csvPath, StandardCharsets.UTF_8);
+            this.json = Files.newBufferedWriter(dir.resolve(name + ".metrics.jsonl"), StandardCharsets.UTF_8);
+            csv.write("time,metric,id,value");
+            csv.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot create the metrics %s", csvPath), e);
+        }
+    }
+
+
+    /**
+     * write the snapshot, flushed so that the files can be read while the simulation runs
+     */
+    public void write(MetricsSnapshot snapshot) {
+        try {
+            double time = snapshot.getTime();
+            writeRow(time, "returnedJobNum", "", snapshot.getReturnedJobNum());
+            writeRow(time, "jobWaitMean", "", snapshot.getJobWaitMean());
+            writeRow(time, "jobWaitP50", "", snapshot.getJobWaitP50());
+            writeRow(time, "jobWaitP90", "", snapshot.getJobWaitP90());
+            writeRow(time, "jobWaitP99", "", snapshot.getJobWaitP99());
+            writeRow(time, "jobWaitMax", "", snapshot.getJobWaitMax());
+            writeRow(time, "readyQueueLength", "", snapshot.getReadyQueueLength());
+            writeRow(time, "readyQueueMax", "", snapshot.getReadyQueueMax());
+            writeRow(time, "retriesPerMinute", "", snapshot.getRetriesPerMinute());
+            for (Map.Entry<Integer, Double> entry : snapshot.getVmUtilization().entrySet()) {
+                writeRow(time, "vmUtilization", entry.getKey().toString(), entry.getValue());
+            }
+            for (Map.Entry<Integer, Double> entry : snapshot.getDcElecCostRate().entrySet()) {
+                writeRow(time, "dcElecCostRate", entry.getKey().toString(), entry.getValue());
+            }
+            csv.flush();
+            json.write(JSONUtil.toJsonStr(snapshot));
+            json.newLine();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot write the metrics %s", csvPath), e);
+        }
+    }
+
+    private void writeRow(double time, String metric, String id, Number value) throws IOException {
+        csv.write(time + "," + metric + "," + id + "," + value);
+        csv.newLine();
+    }
+
+    @Override
+    public void close() {
+        try (csv; json) {
+            csv.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot close the metrics %s", csvPath), e);
+        }
+    }
+}
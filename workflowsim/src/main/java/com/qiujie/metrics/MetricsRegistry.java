@@ -0,0 +1,213 @@
+package com.qiujie.metrics;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.Simulation;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * the live metrics of a simulation, attached to this run of it, updated by the broker and the schedulers while it runs
+ * and read as a {@link MetricsSnapshot} per interval of simulated time
+ * <p>
+ * the counters and the histogram are lock-free and can be read by other threads meanwhile, the usage of the vms is
+ * only touched by the thread that runs the simulation
+ */
+public class MetricsRegistry {
+
+    // the time a ready job waits until it starts, in seconds to 1 ms
+    private final Histogram jobWaitTime = new Histogram(1e-3, 2);
+
+    private final AtomicLong readyQueueLength = new AtomicLong();
+
+    // the longest ready queue of the interval
+    private final AtomicLong readyQueueMax = new AtomicLong();
+
+    private final LongAdder retryCount = new LongAdder();
+
+    // the elec cost accrued over the interval, per datacenter id
+    private final IdSums elecCost = new IdSums();
+
+    // the usage of the vms, indexed by vm id
+    private VmUsage[] vmUsages = new VmUsage[16];
+
+    // the end of the last interval
+    private double snapshotTime;
+
+    // the measured simulation, or null if the metrics are not attached
+    private Simulation simulation;
+
+
+    /**
+     * @param startTime the start of the first interval
+     */
+    public MetricsRegistry(double startTime) {
+        this.snapshotTime = startTime;
+    }
+
+    /**
+     * the metrics of the current simulation of the calling thread, or null if it is not measured
+     */
+    public static MetricsRegistry current() {
+        return CloudSim.getSimulation().getTransientAttribute(MetricsRegistry.class);
+    }
+
+    /**
+     * measure the current simulation of the calling thread, the snapshots of the simulation are not measured
+     */
+    public void attach() {
+        simulation = CloudSim.getSimulation();
+        simulation.setTransientAttribute(MetricsRegistry.class, this);
+    }
+
+    /**
+     * stop measuring the simulation
+     */
+    public void detach() {
+        if (simulation != null && simulation.getTransientAttribute(MetricsRegistry.class) == this) {
+            simulation.setTransientAttribute(MetricsRegistry.class, null);
+        }
+        simulation = null;
+    }
+
+
+    /**
+     * a job has returned, it waited from when all its parents returned until it started
+     */
+    public void jobWaited(double waitTime) {
+        jobWaitTime.record(waitTime);
+    }
+
+    public void readyQueueChanged(int length) {
+        readyQueueLength.set(length);
+        readyQueueMax.accumulateAndGet(length, Math::max);
+    }
+
+    public void jobRetried() {
+        retryCount.increment();
+    }
+
+    public void elecCostAccrued(int datacenterId, double cost) {
+        elecCost.add(datacenterId, cost);
+    }
+
+    /**
+     * the number of busy pes of a vm has changed
+     *
+     * @param time    the time of the change
+     * @param usedPes the busy pes from then on
+     * @param pes     the pes of the vm
+     */
+    public void vmUsageChanged(int vmId, double time, int usedPes, int pes) {
+        if (vmId >= vmUsages.length) {
+            vmUsages = Arrays.copyOf(vmUsages, Math.max(vmId + 1, vmUsages.length * 2));
+        }
+        VmUsage usage = vmUsages[vmId];
+        if (usage == null) {
+            usage = vmUsages[vmId] = new VmUsage(time);
+        }
+        usage.accrue(time);
+        usage.utilization = pes > 0 ? (double) usedPes / pes : 0;
+    }
+
+
+    /**
+     * end the interval at the time and start the next one, the rates are over the interval
+     *
+     * @param time the end of the interval, after the events due at or before it have been processed
+     */
+    public MetricsSnapshot snapshot(double time) {
+        double interval = time - snapshotTime;
+        if (interval <= 0) {
+            throw new IllegalStateException(String.format("The metrics snapshot at %s does not follow the one at %s", time, snapshotTime));
+        }
+        Map<Integer, Double> vmUtilization = new TreeMap<>();
+        for (int vmId = 0; vmId < vmUsages.length; vmId++) {
+            VmUsage usage = vmUsages[vmId];
+            if (usage != null) {
+                usage.accrue(time);
+                vmUtilization.put(vmId, usage.busyTime / interval);
+                usage.busyTime = 0;
+            }
+        }
+        Map<Integer, Double> dcElecCostRate = new TreeMap<>();
+        elecCost.sumThenReset().forEach((dcId, cost) -> dcElecCostRate.put(dcId, cost / interval));
+        MetricsSnapshot snapshot = new MetricsSnapshot(time, interval,
+                jobWaitTime.getTotalCount(), jobWaitTime.getMean(), jobWaitTime.getValueAtPercentile(50), jobWaitTime.getValueAtPercentile(90),
+                jobWaitTime.getValueAtPercentile(99), jobWaitTime.getMax(),
+                readyQueueLength.get(), readyQueueMax.getAndSet(readyQueueLength.get()),
+                retryCount.sumThenReset() * 60 / interval, vmUtilization, dcElecCostRate);
+        jobWaitTime.reset();
+        snapshotTime = time;
+        return snapshot;
+    }
+
+
+    /**
+     * the busy time of a vm over the interval, accrued at the utilization in force since the last change
+     */
+    private static class VmUsage {
+
+        private double time;
+
+        private double utilization;
+
+        private double busyTime;
+
+        private VmUsage(double time) {
+            this.time = time;
+        }
+
+        private void accrue(double time) {
+            if (time > this.time) {
+                busyTime += utilization * (time - this.time);
+                this.time = time;
+            }
+        }
+    }
+
+
+    /**
+     * lock-free sums indexed by small non-negative ids, only the first sum of an id takes a lock
+     */
+    private static class IdSums {
+
+        private volatile DoubleAdder[] sums = new DoubleAdder[16];
+
+        private void add(int id, double value) {
+            DoubleAdder[] current = sums;
+            DoubleAdder sum = id < current.length ? current[id] : null;
+            if (sum == null) {
+                sum = create(id);
+            }
+            sum.add(value);
+        }
+
+        private synchronized DoubleAdder create(int id) {
+            DoubleAdder[] current = sums;
+            if (id < current.length && current[id] != null) {
+                return current[id];
+            }
+            // copied on write, so that the readers of the array see whole sums
+            DoubleAdder[] next = Arrays.copyOf(current, Math.max(id + 1, current.length));
+            next[id] = new DoubleAdder();
+            sums = next;
+            return next[id];
+        }
+
+        private Map<Integer, Double> sumThenReset() {
+            Map<Integer, Double> map = new TreeMap<>();
+            DoubleAdder[] current = sums;
+            for (int id = 0; id < current.length; id++) {
+                if (current[id] != null) {
+                    map.put(id, current[id].sumThenReset());
+                }
+            }
+            return map;
+        }
+    }
+}
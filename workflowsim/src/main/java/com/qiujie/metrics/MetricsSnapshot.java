@@ -0,0 +1,48 @@
+package com.qiujie.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * the metrics of an interval of simulated time, ending at the time of the snapshot
+ *
+ * @see MetricsRegistry#snapshot(double)
+ */
+@Getter
+@AllArgsConstructor
+public class MetricsSnapshot {
+
+    // the end of the interval
+    private final double time;
+
+    // the length of the interval
+    private final double interval;
+
+    // the number of jobs returned in the interval and the time they waited from ready to start
+    private final long returnedJobNum;
+
+    private final double jobWaitMean;
+
+    private final double jobWaitP50;
+
+    private final double jobWaitP90;
+
+    private final double jobWaitP99;
+
+    private final double jobWaitMax;
+
+    // the length of the ready queue at the end of the interval and its maximum over the interval
+    private final long readyQueueLength;
+
+    private final long readyQueueMax;
+
+    private final double retriesPerMinute;
+
+    // the mean fraction of busy pes over the interval, per vm id
+    private final Map<Integer, Double> vmUtilization;
+
+    // the elec cost accrued per second of the interval, per datacenter id
+    private final Map<Integer, Double> dcElecCostRate;
+}
@@ -2,6 +2,7 @@ package com.qiujie.planner;
 
 import com.qiujie.core.WorkflowDatacenter;
 import com.qiujie.entity.*;
+import com.qiujie.jfr.PlanningPhaseEvent.Phase;
 import com.qiujie.util.ExperimentUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.cloudbus.cloudsim.Host;
@@ -10,8 +11,6 @@ import org.cloudbus.cloudsim.core.CloudSim;
 
 import java.util.*;
 
-import static com.qiujie.Constants.SIM_NAME;
-import static com.qiujie.Constants.SLACK_TIME_FACTOR;
 
 /**
  * Performance-effective and low-complexity task scheduling for heterogeneous computing
@@ -31,9 +30,9 @@ public class HEFTPlanner extends WorkflowPlannerAbstract {
     @Override
     public void run() {
         for (Workflow workflow : getWorkflowList()) {
-            calculateUpwardRank(workflow);
-            calculateExecutionTimeAndReliability(workflow);
-            allocateJobs(workflow);
+            runPhase(Phase.UPWARD_RANK, workflow, () -> calculateUpwardRank(workflow));
+            runPhase(Phase.EXEC_TIME_TABLE, workflow, () -> calculateExecutionTimeAndReliability(workflow));
+            runPhase(Phase.ALLOCATION, workflow, () -> allocateJobs(workflow));
         }
     }
 
@@ -94,7 +93,7 @@ public class HEFTPlanner extends WorkflowPlannerAbstract {
         Map<Job, Map<Job, Double>> avgPredecessorDataTransferTimeMap = calculateAvgPredecessorDataTransferTime(workflow);
         double mips = getVmList().stream().mapToDouble(Vm::getMips).average().getAsDouble();
         double upwardRank = calculateUpwardRank(avgLocalDataTransferTimeMap, avgPredecessorDataTransferTimeMap, mips, workflow);
-        double slackTime = upwardRank * SLACK_TIME_FACTOR;
+        double slackTime = upwardRank * getConfig().getSlackTimeFactor();
         workflow.setDeadline(getFinishTime() + upwardRank + slackTime);
     }
 
@@ -103,31 +102,24 @@ public class HEFTPlanner extends WorkflowPlannerAbstract {
      * allocate jobs
      */
     private void allocateJobs(Workflow workflow) {
-        log.info("{}: {}: Starting planning workflow #{} {}, a total of {} Jobs...", CloudSim.clock(),SIM_NAME, workflow.getId(), workflow.getName(), workflow.getJobNum());
-        List<Job> sequence = workflow.getJobList().stream().sorted(Comparator.comparingDouble(upwardRankMap::get).reversed()).toList();
+        log.info("{}: {}: Starting planning workflow #{} {}, a total of {} Jobs...", CloudSim.clock(), getConfig().getSimName(), workflow.getId(), workflow.getName(), workflow.getJobNum());
+        List<Job> scheduleSequence = calculateScheduleSequence(workflow.getJobList(), upwardRankMap);
         eftMap = new HashMap<>();
         Solution solution = new Solution();
         double elecCost = 0;
-        double reliability = 1;
+        double logReliability = 0;
         double finishTime = 0;
-        List<Job> scheduleSequence = new ArrayList<>();
-        while (scheduleSequence.size() < sequence.size()) {
-            for (Job job : sequence) {
-                if (scheduleSequence.contains(job) || !new HashSet<>(scheduleSequence).containsAll(job.getParentList())) {
-                    continue;
-                }
-                scheduleSequence.add(job);
-                elecCost += allocateJob(job, solution, getExecWindowMap());
-                reliability *= reliabilityMap.get(job).get(solution.getResult().get(job));
-                finishTime = Math.max(finishTime, eftMap.get(job));
-            }
+        for (Job job : scheduleSequence) {
+            elecCost += allocateJob(job, solution, getExecWindowMap());
+            logReliability += jobFvTable.getLogReliability(job, solution.getResult().get(job));
+            finishTime = Math.max(finishTime, eftMap.get(job));
         }
         if (isNotTopologicalOrder(scheduleSequence)) {
             throw new IllegalStateException("Not a topological order!");
         }
         solution.setSequence(scheduleSequence);
         solution.setElecCost(elecCost);
-        solution.setReliability(reliability);
+        solution.setReliability(Math.exp(logReliability));
         solution.setFinishTime(finishTime);
         for (Job job : solution.getSequence()) {
             Fv fv = solution.getResult().get(job);
@@ -138,7 +130,7 @@ public class HEFTPlanner extends WorkflowPlannerAbstract {
         getSequence().addAll(solution.getSequence());
         setElecCost(getElecCost() + solution.getElecCost());
         setFinishTime(Math.max(getFinishTime(), solution.getFinishTime()));
-        log.debug(String.format("%.2f: %s: %s: Best %s", CloudSim.clock(),SIM_NAME, workflow.getName(), solution));
+        log.debug(String.format("%.2f: %s: %s: Best %s", CloudSim.clock(), getConfig().getSimName(), workflow.getName(), solution));
 
     }
 
@@ -154,15 +146,16 @@ public class HEFTPlanner extends WorkflowPlannerAbstract {
         for (Vm vm : getVmList()) {
             DvfsVm dvfsVm = (DvfsVm) vm;
             double max = 0;
-            for (Job parent : job.getParentList()) {
+            for (int i = 0; i < job.getParentList().size(); i++) {
+                Job parent = job.getParentList().get(i);
                 if (!eftMap.containsKey(parent)) {
                     throw new IllegalStateException(String.format("Parent job #%d eft has not been calculated!", parent.getCloudletId()));
                 }
-                max = Math.max(max, eftMap.get(parent) + ExperimentUtil.calculatePredecessorDataTransferTime(job, (Host) dvfsVm.getHost(), parent, (Host) solution.getResult().get(parent).getVm().getHost()));
+                max = Math.max(max, eftMap.get(parent) + ExperimentUtil.calculatePredecessorDataTransferTime(job.getParentDataSize(i), (Host) dvfsVm.getHost(), (Host) solution.getResult().get(parent).getVm().getHost()));
             }
             double readyTime = max + localDataTransferTimeMap.get(job).get(dvfsVm);
             Fv fv = dvfsVm.getFvList().getFirst();
-            double eft = findEFT(job, fv, readyTime, execTimeMap, false, execWindowMap);
+            double eft = findEFT(job, fv, readyTime, jobFvTable, false, execWindowMap);
             if (eft < bestEft) {
                 bestFv = fv;
                 bestEft = eft;
@@ -170,11 +163,11 @@ public class HEFTPlanner extends WorkflowPlannerAbstract {
             }
         }
 
-        double eft = findEFT(job, bestFv, bestReadyTime, execTimeMap, true, execWindowMap);
+        double eft = findEFT(job, bestFv, bestReadyTime, jobFvTable, true, execWindowMap);
         WorkflowDatacenter dc = (WorkflowDatacenter) bestFv.getVm().getDatacenter();
         List<Double> elecPrice = dc.getElecPrice();
         double transferElecCost = ExperimentUtil.calculateElecCost(elecPrice, beginTime, bestReadyTime, bestFv.getPower());
-        double execElecCost = ExperimentUtil.calculateElecCost(elecPrice, eft - execTimeMap.get(job).get(bestFv), eft, bestFv.getPower());
+        double execElecCost = ExperimentUtil.calculateElecCost(elecPrice, eft - jobFvTable.getExecTime(job, bestFv), eft, bestFv.getPower());
         double elecCost = transferElecCost + execElecCost;
         eftMap.put(job, eft);
         solution.bindJobToFv(job, bestFv);
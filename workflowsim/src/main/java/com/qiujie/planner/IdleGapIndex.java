@@ -0,0 +1,200 @@
+package com.qiujie.planner;
+
+import com.qiujie.entity.ExecWindow;
+
+import java.io.Serializable;
+import java.util.List;
+
+import static com.qiujie.Constants.ε;
+
+/**
+ * Index of the idle gaps between the execution windows of a vm.
+ * The gaps are kept in a treap ordered by start time, and each node records the maximum gap length in its subtree,
+ * so that the earliest gap fitting a job is found in O(log n) instead of scanning all windows.
+ * <p>
+ * With windows w0, w1, ..., wn-1 the gaps are (-∞, w0.start], [wk.finish, wk+1.start] and [wn-1.finish, +∞).
+ *
+ * @author qiujie
+ */
+class IdleGapIndex implements Serializable {
+
+    private static final class Node implements Serializable {
+        private final double start;
+        private final double end;
+        private final int priority;
+        private double maxLength;
+        private Node left;
+        private Node right;
+
+        private Node(double start, double end, int priority) {
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+            this.maxLength = end - start;
+        }
+
+        private void update() {
+            maxLength = end - start;
+            if (left != null) {
+                maxLength = Math.max(maxLength, left.maxLength);
+            }
+            if (right != null) {
+                maxLength = Math.max(maxLength, right.maxLength);
+            }
+        }
+    }
+
+    private Node root;
+
+    // the number of execution windows separating the gaps
+    private int windowNum;
+
+    // seed of the deterministic treap priorities
+    private int seed;
+
+    IdleGapIndex() {
+        this.root = new Node(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, nextPriority());
+        this.windowNum = 0;
+    }
+
+    /**
+     * build the index of a sorted window list
+     *
+     * @param execWindows execution windows ordered by start time
+     */
+    IdleGapIndex(List<ExecWindow> execWindows) {
+        this();
+        for (ExecWindow execWindow : execWindows) {
+            occupy(execWindow.getStartTime(), execWindow.getFinishTime());
+        }
+    }
+
+    int getWindowNum() {
+        return windowNum;
+    }
+
+    /**
+     * find the earliest start time of a job in the gaps, the same as a linear scan of the windows
+     *
+     * @param readyTime
+     * @param execTime
+     * @return earliest start time
+     */
+    double findEarliestStartTime(double readyTime, double execTime) {
+        // the gap containing the ready time, gaps before it end before the ready time
+        Node floor = floor(readyTime);
+        if (floor != null) {
+            double gapStart = Math.max(readyTime, floor.start);
+            if (gapStart + execTime <= floor.end) {
+                return gapStart;
+            }
+        }
+        // the first later gap that is long enough, the last gap is unbounded so it always exists
+        return firstFit(root, readyTime, execTime).start;
+    }
+
+    /**
+     * split the gap containing the window
+     *
+     * @param startTime
+     * @param finishTime
+     */
+    void occupy(double startTime, double finishTime) {
+        // locate the gap by the middle of the window, the start time may be rounded to just before the gap
+        Node gap = floor((startTime + finishTime) / 2);
+        if (gap == null || finishTime > gap.end + ε) {
+            throw new IllegalStateException(String.format("No idle gap contains the window [%s - %s]", startTime, finishTime));
+        }
+        Node[] parts = split(root, gap.start);
+        Node[] rest = split(parts[1], Math.nextUp(gap.start));
+        Node left = merge(parts[0], new Node(gap.start, startTime, nextPriority()));
+        root = merge(merge(left, new Node(finishTime, gap.end, nextPriority())), rest[1]);
+        windowNum++;
+    }
+
+    /**
+     * @return the gap with the largest start time not after the given time
+     */
+    private Node floor(double time) {
+        Node node = root;
+        Node floor = null;
+        while (node != null) {
+            if (node.start <= time) {
+                floor = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * @return the leftmost gap starting after the ready time that fits the execution time
+     */
+    private Node firstFit(Node node, double readyTime, double execTime) {
+        // the stored lengths are only used to prune, the fit itself is checked exactly as the linear scan does
+        if (node == null || node.maxLength + ε < execTime) {
+            return null;
+        }
+        if (node.start > readyTime) {
+            Node found = firstFit(node.left, readyTime, execTime);
+            if (found != null) {
+                return found;
+            }
+            if (node.start + execTime <= node.end) {
+                return node;
+            }
+        }
+        return firstFit(node.right, readyTime, execTime);
+    }
+
+    /**
+     * @return the nodes starting before the key, and the others
+     */
+    private static Node[] split(Node node, double key) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (node.start < key) {
+            Node[] parts = split(node.right, key);
+            node.right = parts[0];
+            node.update();
+            return new Node[]{node, parts[1]};
+        }
+        Node[] parts = split(node.left, key);
+        node.left = parts[1];
+        node.update();
+        return new Node[]{parts[0], node};
+    }
+
+    /**
+     * all the nodes in a must start before the nodes in b
+     */
+    private static Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            a.update();
+            return a;
+        }
+        b.left = merge(a, b.left);
+        b.update();
+        return b;
+    }
+
+    private int nextPriority() {
+        // xorshift, deterministic so that planning is reproducible
+        seed += 0x9E3779B9;
+        int x = seed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        return x;
+    }
+}
@@ -0,0 +1,67 @@
+package com.qiujie.planner;
+
+import com.qiujie.entity.Fv;
+import com.qiujie.entity.Job;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dense table of the predicted execution time and log reliability of each job on each fv.
+ * Rows are indexed by {@link Job#getIndex()} and columns by {@link Fv#getIndex()}, and the values are stored in flat
+ * primitive arrays, so a lookup costs neither hashing nor boxing.
+ *
+ * @author qiujie
+ */
+public class JobFvTable implements Serializable {
+
+    @Getter
+    private final int jobNum;
+
+    @Getter
+    private final int fvNum;
+
+    private final double[] execTimes;
+
+    // log reliability, so that the reliability of a sequence is a sum instead of a product
+    private final double[] logReliabilities;
+
+    /**
+     * @param jobList jobs of a workflow
+     * @param fvList  one fv per (vm type, level)
+     */
+    public JobFvTable(List<Job> jobList, List<Fv> fvList) {
+        this.jobNum = jobList.size();
+        this.fvNum = fvList.stream().mapToInt(Fv::getIndex).max().orElse(-1) + 1;
+        this.execTimes = new double[jobNum * fvNum];
+        this.logReliabilities = new double[jobNum * fvNum];
+        // columns of fvs not in fvList must never be read
+        Arrays.fill(execTimes, Double.NaN);
+        Arrays.fill(logReliabilities, Double.NaN);
+        for (Job job : jobList) {
+            if (job.getIndex() >= jobNum || jobList.get(job.getIndex()) != job) {
+                throw new IllegalArgumentException(String.format("Job #%d index %d does not match its position in the job list", job.getCloudletId(), job.getIndex()));
+            }
+            for (Fv fv : fvList) {
+                int pos = job.getIndex() * fvNum + fv.getIndex();
+                double executionTime = job.getLength() / fv.getMips();
+                execTimes[pos] = executionTime;
+                logReliabilities[pos] = -fv.getLambda() * executionTime; // smaller frequency, smaller reliability
+            }
+        }
+    }
+
+    public double getExecTime(Job job, Fv fv) {
+        return execTimes[job.getIndex() * fvNum + fv.getIndex()];
+    }
+
+    public double getLogReliability(Job job, Fv fv) {
+        return logReliabilities[job.getIndex() * fvNum + fv.getIndex()];
+    }
+
+    public double getReliability(Job job, Fv fv) {
+        return Math.exp(getLogReliability(job, fv));
+    }
+}
@@ -0,0 +1,405 @@
+package com.qiujie.planner;
+
+import com.qiujie.Constants;
+import com.qiujie.config.ExperimentConfig;
+import com.qiujie.core.WorkflowDatacenter;
+import com.qiujie.entity.Fv;
+import com.qiujie.entity.Job;
+import com.qiujie.util.ExperimentUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Event-free replay of a planned schedule, which computes the outcome of the simulation without running it.
+ * <p>
+ * With the space-shared schedulers, one job per pe and the fv of every job fixed by the planner, a job starts once all
+ * its parents have finished and a pe of its vm is free, the vms serving their jobs in the order they become ready, and
+ * runs for its length plus the file transfer predicted by the datacenter. So the jobs are visited once, in the order
+ * they become ready, ties broken by the planner sequence as in the broker, and the elec cost of a job is accrued from
+ * its start to its finish.
+ * <p>
+ * A transient fault of a job is sampled once per attempt: the exec stage of an attempt fails with probability
+ * 1 - e^(-λt), at the time the sample gives on the exponential distribution, and the job is run again from there. The
+ * scheduler samples a fault per time span between two updates instead and runs the job again from the end of the span,
+ * so the retries follow the same distribution as in the simulation, but neither the same draws nor the same lost time.
+ * <p>
+ * An evaluator keeps no state between evaluations, but the random of its config is shared.
+ *
+ * @author qiujie
+ */
+@Slf4j
+public class ScheduleEvaluator {
+
+    private final List<Job> sequence;
+
+    private final ExperimentConfig config;
+
+    // the time the jobs are submitted
+    private final double startTime;
+
+    // the positions of the parents and of the children of each job in the sequence
+    private final int[][] parentIndexes;
+
+    private final int[][] childIndexes;
+
+
+    /**
+     * @param sequence  the planner sequence, a topological order of the jobs of all workflows
+     * @param config    the max retry count and the random of the faults, no faults are sampled if the random is null
+     * @param startTime the time the jobs are submitted, i.e. the time of the planning
+     */
+    public ScheduleEvaluator(List<Job> sequence, ExperimentConfig config, double startTime) {
+        this.sequence = List.copyOf(sequence);
+        this.config = config;
+        this.startTime = startTime;
+        Map<Job, Integer> indexMap = new HashMap<>();
+        for (int i = 0; i < this.sequence.size(); i++) {
+            indexMap.put(this.sequence.get(i), i);
+        }
+        this.parentIndexes = new int[this.sequence.size()][];
+        for (int i = 0; i < this.sequence.size(); i++) {
+            List<Job> parentList = this.sequence.get(i).getParentList();
+            parentIndexes[i] = new int[parentList.size()];
+            for (int j = 0; j < parentList.size(); j++) {
+                Integer parentIndex = indexMap.get(parentList.get(j));
+                if (parentIndex == null || parentIndex >= i) {
+                    throw new IllegalArgumentException(String.format("Job #%d precedes its parent #%d in the sequence", this.sequence.get(i).getCloudletId(), parentList.get(j).getCloudletId()));
+                }
+                parentIndexes[i][j] = parentIndex;
+            }
+        }
+        int[] childCounts = new int[this.sequence.size()];
+        for (int[] parents : parentIndexes) {
+            for (int parentIndex : parents) {
+                childCounts[parentIndex]++;
+            }
+        }
+        this.childIndexes = new int[this.sequence.size()][];
+        for (int i = 0; i < childIndexes.length; i++) {
+            childIndexes[i] = new int[childCounts[i]];
+            childCounts[i] = 0;
+        }
+        for (int i = 0; i < parentIndexes.length; i++) {
+            for (int parentIndex : parentIndexes[i]) {
+                childIndexes[parentIndex][childCounts[parentIndex]++] = i;
+            }
+        }
+    }
+
+
+    /**
+     * evaluate the fvs the planner has bound the jobs to
+     */
+    public Result evaluate() {
+        return evaluate(sequence.stream().map(Job::getFv).toArray(Fv[]::new));
+    }
+
+    /**
+     * evaluate the fvs of a solution, which has to bind every job of the sequence
+     */
+    public Result evaluate(Map<Job, Fv> binding) {
+        Fv[] fvs = new Fv[sequence.size()];
+        for (int i = 0; i < fvs.length; i++) {
+            fvs[i] = binding.get(sequence.get(i));
+        }
+        return evaluate(fvs);
+    }
+
+    /**
+     * @param fvs the fv of each job, in the order of the sequence
+     */
+    public Result evaluate(Fv[] fvs) {
+        int jobNum = sequence.size();
+        return replay(fvs, config.getRandom(), new double[jobNum], new double[jobNum]);
+    }
+
+
+    /**
+     * replay the schedule
+     *
+     * @param random      the random of the faults, or null
+     * @param startTimes  filled with the exec start time of each job
+     * @param finishTimes filled with the exec finish time of each job
+     */
+    private Result replay(Fv[] fvs, ContinuousDistribution random, double[] startTimes, double[] finishTimes) {
+        int jobNum = sequence.size();
+        if (fvs.length != jobNum) {
+            throw new IllegalArgumentException(String.format("%d fvs for %d jobs", fvs.length, jobNum));
+        }
+        // the free time of each pe of each vm, indexed by vm id
+        double[][] peFreeTimes = new double[0][];
+        for (int i = 0; i < jobNum; i++) {
+            if (fvs[i] == null) {
+                throw new IllegalArgumentException(String.format("Job #%d is not bound to a fv", sequence.get(i).getCloudletId()));
+            }
+            Vm vm = fvs[i].getVm();
+            if (vm.getId() >= peFreeTimes.length) {
+                peFreeTimes = Arrays.copyOf(peFreeTimes, Math.max(vm.getId() + 1, peFreeTimes.length * 2));
+            }
+            if (peFreeTimes[vm.getId()] == null) {
+                peFreeTimes[vm.getId()] = new double[vm.getNumberOfPes()];
+            }
+        }
+        // the number of parents of each job that have not finished
+        int[] pendingParentCounts = new int[jobNum];
+        for (int i = 0; i < jobNum; i++) {
+            pendingParentCounts[i] = parentIndexes[i].length;
+        }
+        // the jobs whose parents have all finished, ordered by ready time and then by position in the sequence
+        double[] readyTimes = new double[jobNum];
+        ReadyHeap readyHeap = new ReadyHeap(readyTimes, jobNum);
+        for (int i = 0; i < jobNum; i++) {
+            if (pendingParentCounts[i] == 0) {
+                readyTimes[i] = startTime;
+                readyHeap.add(i);
+            }
+        }
+        int maxRetryCount = random == null ? 0 : config.getMaxRetryCount();
+        double finishTime = 0;
+        double elecCost = 0;
+        int retryCount = 0;
+        while (!readyHeap.isEmpty()) {
+            int i = readyHeap.poll();
+            Job job = sequence.get(i);
+            Fv fv = fvs[i];
+            // the first pe of the vm to be free, the waiting jobs are served in the order they became ready
+            double[] pes = peFreeTimes[fv.getVm().getId()];
+            int pe = 0;
+            for (int k = 1; k < pes.length; k++) {
+                if (pes[k] < pes[pe]) {
+                    pe = k;
+                }
+            }
+            double start = Math.max(readyTimes[i], pes[pe]);
+            // the length is extended by the file transfer at the capacity of the fv, as the scheduler does
+            double fileTransferTime = predictFileTransferTime(i, fvs);
+            long length = (long) (job.getLength() + fv.getMips() * fileTransferTime);
+            double finish = start + length / fv.getMips();
+            double execTime = job.getLength() / fv.getMips();
+            for (int retry = 0; retry < maxRetryCount && fv.getLambda() > 0; retry++) {
+                double sample = random.sample();
+                if (sample >= 1 - Math.exp(-fv.getLambda() * execTime)) {
+                    break;
+                }
+                // the job fails this far into its exec stage and runs again from there
+                finish += -Math.log(1 - sample) / fv.getLambda();
+                retryCount++;
+            }
+            pes[pe] = finish;
+            startTimes[i] = start;
+            finishTimes[i] = finish;
+            finishTime = Math.max(finishTime, finish);
+            WorkflowDatacenter dc = (WorkflowDatacenter) fv.getVm().getHost().getDatacenter();
+            elecCost += ExperimentUtil.calculateElecCost(dc.getElecPrice(), start, finish, fv.getPower());
+            for (int childIndex : childIndexes[i]) {
+                readyTimes[childIndex] = Math.max(readyTimes[childIndex], finish);
+                if (--pendingParentCounts[childIndex] == 0) {
+                    readyHeap.add(childIndex);
+                }
+            }
+        }
+        return new Result(finishTime, elecCost, retryCount);
+    }
+
+
+    /**
+     * the file transfer time predicted by the datacenter when the job is submitted, see WorkflowDatacenter
+     */
+    private double predictFileTransferTime(int i, Fv[] fvs) {
+        Job job = sequence.get(i);
+        Host host = (Host) fvs[i].getVm().getHost();
+        double predDataTransferTime = Double.MIN_VALUE;
+        for (int j = 0; j < parentIndexes[i].length; j++) {
+            Host parentHost = (Host) fvs[parentIndexes[i][j]].getVm().getHost();
+            double temp;
+            if (parentHost.getDatacenter().getId() != host.getDatacenter().getId()) {
+                temp = job.getParentDataSize(j) / Constants.INTER_BANDWIDTH;
+            } else {
+                temp = ExperimentUtil.calculatePredecessorDataTransferTime(job.getParentDataSize(j), host, parentHost);
+            }
+            predDataTransferTime = Math.max(predDataTransferTime, temp);
+        }
+        return predDataTransferTime + ExperimentUtil.calculateLocalDataTransferTime(job, host);
+    }
+
+
+    /**
+     * cross-check the replay against a simulation: the executed schedule is replayed without faults, and the finish
+     * time and the elec cost are compared with the simulated ones, as well as the exec start and finish time of every
+     * job
+     * <p>
+     * the simulation finishes a job once less than 1 MI is left and rounds its progress down at every update, so the
+     * replayed times are off by a few ms per job, and two jobs of a vm that become ready within that much of each other
+     * may start in the other order, which is reported but not checked
+     *
+     * @param sequence     the planner sequence of the simulation
+     * @param receivedList the jobs returned to the broker, in the order they returned
+     * @param config       the config of the simulation
+     * @param tolerance    the largest relative deviation of the finish time and of the elec cost accepted, and of the
+     *                     time of a job to count as matched
+     * @return the deviations
+     * @throws IllegalStateException if the simulation has retried jobs, which the replay cannot reproduce, or if the
+     *                               finish time or the elec cost deviates by more than the tolerance
+     */
+    public static Validation validate(List<Job> sequence, List<? extends Cloudlet> receivedList, ExperimentConfig config, double tolerance) {
+        if (receivedList.size() != sequence.size()) {
+            throw new IllegalStateException(String.format("%d of %d jobs have returned", receivedList.size(), sequence.size()));
+        }
+        int simRetryCount = sequence.stream().mapToInt(Job::getRetryCount).sum();
+        if (simRetryCount > 0) {
+            throw new IllegalStateException(String.format("The simulation has %d retries, validate with a max retry count of 0", simRetryCount));
+        }
+        // the roots are ready when the planner sequence is submitted
+        ScheduleEvaluator evaluator = new ScheduleEvaluator(sequence, config, sequence.getFirst().getReadyTime());
+        int jobNum = sequence.size();
+        double[] startTimes = new double[jobNum];
+        double[] finishTimes = new double[jobNum];
+        Result result = evaluator.replay(sequence.stream().map(Job::getFv).toArray(Fv[]::new), null, startTimes, finishTimes);
+        double maxJobDeviation = 0;
+        int deviatingJobNum = 0;
+        for (int i = 0; i < jobNum; i++) {
+            Job job = sequence.get(i);
+            double jobDeviation = Math.max(deviation(startTimes[i], job.getExecStartTime()), deviation(finishTimes[i], job.getExecFinishTime()));
+            maxJobDeviation = Math.max(maxJobDeviation, jobDeviation);
+            if (jobDeviation > tolerance) {
+                deviatingJobNum++;
+            }
+        }
+        double simFinishTime = receivedList.getLast().getExecFinishTime();
+        double simElecCost = sequence.stream().mapToDouble(Job::getElecCost).sum();
+        Validation validation = new Validation(jobNum, result.getFinishTime(), simFinishTime, result.getElecCost(), simElecCost, maxJobDeviation, deviatingJobNum);
+        log.info("{}: {}", config.getSimName(), validation);
+        if (deviatingJobNum > 0) {
+            log.warn("{}: {} of {} jobs deviate by more than {}, by up to {}", config.getSimName(), deviatingJobNum, jobNum, tolerance, maxJobDeviation);
+        }
+        if (validation.getDeviation() > tolerance) {
+            throw new IllegalStateException(String.format("%s: The replay deviates by %s from the simulation, more than %s", config.getSimName(), validation.getDeviation(), tolerance));
+        }
+        return validation;
+    }
+
+    private static double deviation(double value, double simValue) {
+        return Math.abs(value - simValue) / Math.max(Math.abs(simValue), 1);
+    }
+
+
+    /**
+     * the outcome of a schedule
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Result {
+
+        private final double finishTime;
+
+        private final double elecCost;
+
+        private final int retryCount;
+    }
+
+
+    /**
+     * the deviations of the replay from the simulation, relative to the simulated values
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Validation {
+
+        private final int jobNum;
+
+        private final double finishTime;
+
+        private final double simFinishTime;
+
+        private final double elecCost;
+
+        private final double simElecCost;
+
+        // the largest deviation of the start or the finish time of a job
+        private final double maxJobDeviation;
+
+        // the number of jobs deviating by more than the tolerance
+        private final int deviatingJobNum;
+
+        /**
+         * @return the largest deviation of the finish time and of the elec cost
+         */
+        public double getDeviation() {
+            return Math.max(deviation(finishTime, simFinishTime), deviation(elecCost, simElecCost));
+        }
+    }
+
+
+    /**
+     * a binary min-heap of job positions, ordered by ready time and then by position
+     */
+    private static class ReadyHeap {
+
+        private final double[] readyTimes;
+
+        private final int[] heap;
+
+        private int size;
+
+        private ReadyHeap(double[] readyTimes, int capacity) {
+            this.readyTimes = readyTimes;
+            this.heap = new int[capacity];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void add(int i) {
+            int pos = size++;
+            while (pos > 0) {
+                int parent = (pos - 1) >>> 1;
+                if (!before(i, heap[parent])) {
+                    break;
+                }
+                heap[pos] = heap[parent];
+                pos = parent;
+            }
+            heap[pos] = i;
+        }
+
+        private int poll() {
+            int first = heap[0];
+            int last = heap[--size];
+            int pos = 0;
+            while (true) {
+                int child = 2 * pos + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!before(heap[child], last)) {
+                    break;
+                }
+                heap[pos] = heap[child];
+                pos = child;
+            }
+            heap[pos] = last;
+            return first;
+        }
+
+        private boolean before(int a, int b) {
+            return readyTimes[a] < readyTimes[b] || (readyTimes[a] == readyTimes[b] && a < b);
+        }
+    }
+}
@@ -1,27 +1,27 @@
 package com.qiujie.planner;
 
+import com.qiujie.config.ExperimentConfig;
 import com.qiujie.entity.*;
+import com.qiujie.jfr.PlanningPhaseEvent;
+import com.qiujie.jfr.PlanningPhaseEvent.Phase;
 import com.qiujie.util.ExperimentUtil;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.Serializable;
+import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.qiujie.Constants.*;
 
 @Slf4j
-public abstract class WorkflowPlannerAbstract {
+public abstract class WorkflowPlannerAbstract implements Serializable {
 
     @NonNull
     @Setter
@@ -42,6 +42,9 @@ public abstract class WorkflowPlannerAbstract {
     @Getter(AccessLevel.PROTECTED)
     private Map<Vm, List<ExecWindow>> execWindowMap;
 
+    // idle gap index of each window list in the exec window maps, keyed by list identity
+    private final Map<List<ExecWindow>, IdleGapIndex> idleGapIndexMap;
+
     @Setter
     @Getter
     private double elecCost;
@@ -53,45 +56,77 @@ public abstract class WorkflowPlannerAbstract {
     @Getter
     private double runtime;
 
+    // the ratio of vm pairs in the same datacenter but on different hosts
+    private double intraDcPairRatio;
+
+    // the ratio of vm pairs in different datacenters
+    private double interDcPairRatio;
+
+    @Getter(AccessLevel.PROTECTED)
+    private final ExperimentConfig config;
+
 
     WorkflowPlannerAbstract() {
         sequence = new ArrayList<>();
         execWindowMap = new HashMap<>();
+        idleGapIndexMap = new IdentityHashMap<>();
         elecCost = 0;
         finishTime = 0;
+        config = ExperimentConfig.current();
     }
 
 
     public void start() {
-        log.info("{}: {}: Starting planning {} Workflows, a total of {} Jobs...", CloudSim.clock(), SIM_NAME, getWorkflowList().size(), getWorkflowList().stream().mapToInt(Workflow::getJobNum).sum());
+        log.info("{}: {}: Starting planning {} Workflows, a total of {} Jobs...", CloudSim.clock(), config.getSimName(), getWorkflowList().size(), getWorkflowList().stream().mapToInt(Workflow::getJobNum).sum());
         long start = System.currentTimeMillis();
+        calculateVmPairLocality();
         run();
         long end = System.currentTimeMillis();
         this.runtime = (end - start) / 1000.0;
-        log.info("{}: {}: Running {}s", CloudSim.clock(), SIM_NAME, this.runtime);
+        log.info("{}: {}: Running {}s", CloudSim.clock(), config.getSimName(), this.runtime);
     }
 
     protected abstract void run();
 
 
     /**
-     * calculate predicted average predecessor data transfer time
+     * run a phase of the planning of a workflow, recorded as a jfr event
+     */
+    protected void runPhase(Phase phase, Workflow workflow, Runnable action) {
+        PlanningPhaseEvent.record(config.getSimName(), CloudSim.clock(), getClass().getSimpleName(), phase, workflow, action);
+    }
+
+
+    /**
+     * count the ordered vm pairs per locality class, the transfer time between two vms only depends on whether they
+     * are on the same host, in the same datacenter, or in different datacenters
+     */
+    private void calculateVmPairLocality() {
+        Map<Integer, Integer> hostVmNumMap = new HashMap<>();
+        Map<Integer, Integer> dcVmNumMap = new HashMap<>();
+        for (Vm vm : getVmList()) {
+            hostVmNumMap.merge(vm.getHost().getId(), 1, Integer::sum);
+            dcVmNumMap.merge(vm.getHost().getDatacenter().getId(), 1, Integer::sum);
+        }
+        double pairNum = (double) getVmList().size() * getVmList().size();
+        double sameHostPairNum = hostVmNumMap.values().stream().mapToDouble(num -> (double) num * num).sum();
+        double sameDcPairNum = dcVmNumMap.values().stream().mapToDouble(num -> (double) num * num).sum();
+        intraDcPairRatio = (sameDcPairNum - sameHostPairNum) / pairNum;
+        interDcPairRatio = (pairNum - sameDcPairNum) / pairNum;
+    }
+
+
+    /**
+     * calculate predicted average predecessor data transfer time over all pairs of vms
      */
     protected Map<Job, Map<Job, Double>> calculateAvgPredecessorDataTransferTime(Workflow workflow) {
         Map<Job, Map<Job, Double>> avgPredecessorDataTransferTimeMap = new HashMap<>();
-        int vmNum = getVmList().size();
+        // the average time per unit of data, pairs on the same host transfer nothing
+        double avgTimePerData = intraDcPairRatio / INTRA_BANDWIDTH + interDcPairRatio / INTER_BANDWIDTH;
         for (Job job : workflow.getJobList()) {
             avgPredecessorDataTransferTimeMap.put(job, new HashMap<>());
-            for (Job parentJob : job.getParentList()) {
-                double total = 0.0;
-                for (Vm vm : getVmList()) {
-                    for (Vm parentVm : getVmList()) {
-                        double temp = ExperimentUtil.calculatePredecessorDataTransferTime(job, (Host) vm.getHost(), parentJob, (Host) parentVm.getHost());
-                        total += temp;
-                    }
-                }
-                double avgTime = total / (vmNum * vmNum);
-                avgPredecessorDataTransferTimeMap.get(job).put(parentJob, avgTime);
+            for (int i = 0; i < job.getParentList().size(); i++) {
+                avgPredecessorDataTransferTimeMap.get(job).put(job.getParentList().get(i), job.getParentDataSize(i) * avgTimePerData);
             }
         }
         return avgPredecessorDataTransferTimeMap;
@@ -104,40 +139,20 @@ public abstract class WorkflowPlannerAbstract {
      * @param job
      * @param fv
      * @param readyTime
-     * @param execTimeMap
+     * @param jobFvTable
      * @param occupySlot
      * @return
      */
-    protected double findEFT(Job job, Fv fv, double readyTime, Map<Job, Map<Fv, Double>> execTimeMap, boolean occupySlot, Map<Vm, List<ExecWindow>> execWindowMap) {
+    protected double findEFT(Job job, Fv fv, double readyTime, JobFvTable jobFvTable, boolean occupySlot, Map<Vm, List<ExecWindow>> execWindowMap) {
         List<ExecWindow> execWindows = execWindowMap.computeIfAbsent(fv.getVm(), vm -> new ArrayList<>());
-        double execTime = execTimeMap.get(job).get(fv);
-        double eft = Double.MAX_VALUE;
-        int insertPos = execWindows.size(); // default to append to the end
-        // consider the first window
-        if (!execWindows.isEmpty() && readyTime + execTime <= execWindows.getFirst().getStartTime()) {
-            eft = readyTime + execTime;
-            insertPos = 0;
-        } else {
-            // try to find a gap
-            for (int k = 0; k < execWindows.size() - 1; k++) {
-                double gapStart = Math.max(readyTime, execWindows.get(k).getFinishTime());
-                double gapEnd = execWindows.get(k + 1).getStartTime();
-                if (gapStart + execTime <= gapEnd) {
-                    eft = gapStart + execTime;
-                    insertPos = k + 1;
-                    break;
-                }
-            }
-            if (eft == Double.MAX_VALUE) {
-                double lastWindowFinish = execWindows.isEmpty() ? readyTime : execWindows.getLast().getFinishTime();
-                double lastFinish = Math.max(readyTime, lastWindowFinish);
-                eft = lastFinish + execTime;
-                insertPos = execWindows.size();
-            }
-        }
+        IdleGapIndex idleGapIndex = getIdleGapIndex(execWindows);
+        double execTime = jobFvTable.getExecTime(job, fv);
+        double eft = idleGapIndex.findEarliestStartTime(readyTime, execTime) + execTime;
         if (occupySlot) {
             double startTime = eft - execTime;
+            int insertPos = findInsertPos(execWindows, startTime);
             execWindows.add(insertPos, new ExecWindow(startTime, eft, job));
+            idleGapIndex.occupy(startTime, eft);
             if (readyTime - startTime > ε) {
                 throw new IllegalStateException(String.format("Job #%d (insertPos %d): startTime %f is less than readyTime %f", job.getCloudletId(), insertPos, startTime, readyTime));
             }
@@ -152,6 +167,82 @@ public abstract class WorkflowPlannerAbstract {
     }
 
 
+    /**
+     * get the idle gap index of a window list, it is rebuilt if the list has been modified outside findEFT
+     *
+     * @param execWindows
+     * @return
+     */
+    private IdleGapIndex getIdleGapIndex(List<ExecWindow> execWindows) {
+        IdleGapIndex idleGapIndex = idleGapIndexMap.get(execWindows);
+        if (idleGapIndex == null || idleGapIndex.getWindowNum() != execWindows.size()) {
+            idleGapIndex = new IdleGapIndex(execWindows);
+            idleGapIndexMap.put(execWindows, idleGapIndex);
+        }
+        return idleGapIndex;
+    }
+
+
+    /**
+     * binary search the position that keeps the windows ordered by start time
+     *
+     * @param execWindows
+     * @param startTime
+     * @return
+     */
+    private int findInsertPos(List<ExecWindow> execWindows, double startTime) {
+        int low = 0;
+        int high = execWindows.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (execWindows.get(mid).getStartTime() <= startTime) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    /**
+     * calculate the schedule sequence with Kahn's algorithm, a ready job is released once all its parents have been
+     * scheduled, and the ready job with the highest rank is always scheduled first
+     *
+     * @param jobList jobs of a workflow, the position in the list breaks ties between equal ranks
+     * @param rankMap the priority of each job, e.g. upward rank
+     * @return schedule sequence
+     */
+    protected List<Job> calculateScheduleSequence(List<Job> jobList, Map<Job, Double> rankMap) {
+        Map<Job, Integer> positionMap = new HashMap<>();
+        Map<Job, Integer> inDegreeMap = new HashMap<>();
+        PriorityQueue<Job> readyHeap = new PriorityQueue<>(Comparator.comparingDouble((Job job) -> rankMap.get(job)).reversed().thenComparingInt(positionMap::get));
+        for (Job job : jobList) {
+            positionMap.put(job, positionMap.size());
+            inDegreeMap.put(job, job.getParentList().size());
+        }
+        for (Job job : jobList) {
+            if (job.getParentList().isEmpty()) {
+                readyHeap.add(job);
+            }
+        }
+        List<Job> scheduleSequence = new ArrayList<>(jobList.size());
+        while (!readyHeap.isEmpty()) {
+            Job job = readyHeap.poll();
+            scheduleSequence.add(job);
+            for (Job child : job.getChildList()) {
+                if (inDegreeMap.merge(child, -1, Integer::sum) == 0) {
+                    readyHeap.add(child);
+                }
+            }
+        }
+        if (scheduleSequence.size() < jobList.size()) {
+            throw new IllegalStateException(String.format("Only %d of %d jobs can be scheduled, the workflow contains a cycle!", scheduleSequence.size(), jobList.size()));
+        }
+        return scheduleSequence;
+    }
+
+
     protected boolean isNotTopologicalOrder(List<Job> sequence) {
         // create a map to store the positions of each job in the sequence
         Map<Job, Integer> positionMap = new HashMap<>();
@@ -208,8 +299,7 @@ public abstract class WorkflowPlannerAbstract {
     }
 
 
-    protected Map<Job, Map<Fv, Double>> execTimeMap;
-    protected Map<Job, Map<Fv, Double>> reliabilityMap;
+    protected JobFvTable jobFvTable;
 
     /**
      * calculate predicted execution time and reliability
@@ -217,8 +307,8 @@ public abstract class WorkflowPlannerAbstract {
      * @param workflow
      */
     protected void calculateExecutionTimeAndReliability(Workflow workflow) {
-        // get unique vm types
-        List<Vm> vmList = getVmList().stream()
+        // get unique fv types
+        List<Fv> fvList = getVmList().stream()
                 .collect(Collectors.toMap(
                         vm -> ((DvfsVm) vm).getType(),
                         Function.identity(),
@@ -226,29 +316,19 @@ public abstract class WorkflowPlannerAbstract {
                 ))
                 .values()
                 .stream()
+                .flatMap(vm -> ((DvfsVm) vm).getFvList().stream())
                 .toList();
 
-        double maxReliability = 1;
-        double maxSubReliability;
-        execTimeMap = new HashMap<>();
-        reliabilityMap = new HashMap<>();
+        jobFvTable = new JobFvTable(workflow.getJobList(), fvList);
+        double maxLogReliability = 0;
         for (Job job : workflow.getJobList()) {
-            execTimeMap.put(job, new HashMap<>());
-            reliabilityMap.put(job, new HashMap<>());
-            maxSubReliability = 0;
-            for (Vm vm : vmList) {
-                DvfsVm dvfsVm = (DvfsVm) vm;
-                for (Fv fv : dvfsVm.getFvList()) {
-                    double executionTime = job.getLength() / fv.getMips();
-                    execTimeMap.get(job).put(fv, executionTime);
-                    double reliability = Math.exp(-fv.getLambda() * executionTime); // smaller frequency, smaller reliability
-                    reliabilityMap.get(job).put(fv, reliability);
-                    maxSubReliability = Math.max(maxSubReliability, reliability);
-                }
+            double maxSubLogReliability = Double.NEGATIVE_INFINITY;
+            for (Fv fv : fvList) {
+                maxSubLogReliability = Math.max(maxSubLogReliability, jobFvTable.getLogReliability(job, fv));
             }
-            maxReliability *= maxSubReliability; // To maximize reliability, you need to select the Fv with the smallest value of lambda/mips.
+            maxLogReliability += maxSubLogReliability; // To maximize reliability, you need to select the Fv with the smallest value of lambda/mips.
         }
-        workflow.setReliGoal(Math.pow(RELIABILITY_FACTOR, workflow.getJobNum()) * maxReliability);
+        workflow.setReliGoal(Math.pow(config.getReliabilityFactor(), workflow.getJobNum()) * Math.exp(maxLogReliability));
     }
 
 }
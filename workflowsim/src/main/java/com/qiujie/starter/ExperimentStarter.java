@@ -1,7 +1,7 @@
 package com.qiujie.starter;
 
-import com.qiujie.aop.ClockModifier;
 import lombok.extern.slf4j.Slf4j;
+import org.cloudbus.cloudsim.core.Simulation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MarkerFactory;
@@ -27,7 +27,7 @@ public abstract class ExperimentStarter {
 
 
     private void start() {
-        ClockModifier.modifyClockMethod();
+        Simulation.setDefaultClockScale(CLOCK_SCALE);
         org.cloudbus.cloudsim.Log.disable();
         log.info(STARTUP, "{}: Starting...", name);
         this.seed = System.currentTimeMillis();
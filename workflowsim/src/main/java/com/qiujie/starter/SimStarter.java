@@ -1,12 +1,18 @@
 package com.qiujie.starter;
 
 import com.qiujie.comparator.DefaultComparator;
+import com.qiujie.config.ExperimentConfig;
 import com.qiujie.entity.Job;
 import com.qiujie.entity.Workflow;
 import com.qiujie.core.WorkflowBroker;
+import com.qiujie.metrics.MetricsExporter;
+import com.qiujie.metrics.MetricsRegistry;
+import com.qiujie.metrics.MetricsSnapshot;
+import com.qiujie.planner.ScheduleEvaluator;
 import com.qiujie.planner.WorkflowPlannerAbstract;
 import com.qiujie.comparator.WorkflowComparatorInterface;
 import com.qiujie.util.ExperimentUtil;
+import com.qiujie.util.SimTrace;
 import com.qiujie.util.WorkflowParser;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -15,10 +21,20 @@ import lombok.extern.slf4j.Slf4j;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.Simulation;
+import org.cloudbus.cloudsim.core.SimulationProfiler;
+import org.cloudbus.cloudsim.core.SimulationSnapshot;
 import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
 
 import static com.qiujie.Constants.*;
 
@@ -33,29 +49,73 @@ public class SimStarter {
 
     private String name;
 
-    private final ContinuousDistribution random;
+    private final ExperimentConfig config;
     private final List<String> daxPathList;
     private final Class<? extends WorkflowPlannerAbstract> plannerClass;
     private final Class<? extends WorkflowComparatorInterface> comparatorClass;
     private final boolean ascending;
-    private final JobSequenceStrategyEnum jobSequenceStrategy;
     private double runtime;
     //    @Getter(AccessLevel.NONE)
     private WorkflowBroker broker;
+    // the time of the snapshot to take, or -1 if none
+    private final double snapshotTime;
+    private SimulationSnapshot snapshot;
+    // the simulation restored from the snapshot of another starter, or null
+    @Getter(AccessLevel.NONE)
+    private final Simulation restoredSimulation;
+    // the profiler of the event loop, or null if it is not enabled
+    private SimulationProfiler profiler;
+    // the live metrics, or null if they are not enabled
+    private MetricsRegistry metrics;
+    // the metrics snapshot of each interval
+    private final List<MetricsSnapshot> metricsSnapshotList = new ArrayList<>();
 
 
-    public SimStarter(ContinuousDistribution random, List<String> daxPathList, Class<? extends WorkflowPlannerAbstract> plannerClass, Class<? extends WorkflowComparatorInterface> comparatorClass, boolean ascending, JobSequenceStrategyEnum jobSequenceStrategy) {
+    /**
+     * run a simulation with its own config, which does not depend on the mutable constants, so that simulations can
+     * run concurrently on separate threads
+     */
+    public SimStarter(ExperimentConfig config, List<String> daxPathList, Class<? extends WorkflowPlannerAbstract> plannerClass, Class<? extends WorkflowComparatorInterface> comparatorClass, boolean ascending) {
+        this(config, daxPathList, plannerClass, comparatorClass, ascending, -1);
+    }
+
+    /**
+     * run a simulation and take a snapshot of it at the snapshot time, from which other simulations can be forked
+     */
+    public SimStarter(ExperimentConfig config, List<String> daxPathList, Class<? extends WorkflowPlannerAbstract> plannerClass, Class<? extends WorkflowComparatorInterface> comparatorClass, boolean ascending, double snapshotTime) {
         this.id = nextId.getAndIncrement();
-        setName(plannerClass.getSimpleName(), comparatorClass.getSimpleName(), ascending ? "asc" : "desc", jobSequenceStrategy.name());
-        this.random = random;
+        setName(plannerClass.getSimpleName(), comparatorClass.getSimpleName(), ascending ? "asc" : "desc", config.getJobSequenceStrategy().name());
+        this.config = config.withSimName(name);
         this.daxPathList = daxPathList;
         this.plannerClass = plannerClass;
         this.comparatorClass = comparatorClass;
         this.ascending = ascending;
-        this.jobSequenceStrategy = jobSequenceStrategy;
+        this.snapshotTime = snapshotTime;
+        this.restoredSimulation = null;
         start();
     }
 
+    /**
+     * continue the simulation of the parent from its snapshot, with the config of the snapshot changed by the modifier
+     */
+    private SimStarter(SimStarter parent, UnaryOperator<ExperimentConfig> modifier) {
+        this.id = nextId.getAndIncrement();
+        setName(parent.name, "fork" + id);
+        this.restoredSimulation = parent.snapshot.restore();
+        this.config = modifier.apply(restoredSimulation.getAttribute(ExperimentConfig.class)).withSimName(name);
+        this.daxPathList = parent.daxPathList;
+        this.plannerClass = parent.plannerClass;
+        this.comparatorClass = parent.comparatorClass;
+        this.ascending = parent.ascending;
+        this.snapshotTime = -1;
+        this.broker = (WorkflowBroker) restoredSimulation.getEntity(parent.broker.getName());
+        start();
+    }
+
+    public SimStarter(ContinuousDistribution random, List<String> daxPathList, Class<? extends WorkflowPlannerAbstract> plannerClass, Class<? extends WorkflowComparatorInterface> comparatorClass, boolean ascending, JobSequenceStrategyEnum jobSequenceStrategy) {
+        this(ExperimentConfig.fromConstants().withRandom(random).withJobSequenceStrategy(jobSequenceStrategy), daxPathList, plannerClass, comparatorClass, ascending);
+    }
+
     public SimStarter(ContinuousDistribution random, List<String> daxPathList, Class<? extends WorkflowPlannerAbstract> plannerClass, Class<? extends WorkflowComparatorInterface> comparatorClass, boolean ascending) throws Exception {
         this(random, daxPathList, plannerClass, comparatorClass, ascending, JobSequenceStrategyEnum.DEFAULT);
     }
@@ -79,8 +139,8 @@ public class SimStarter {
     private void start() {
         log.info(STARTUP, "{}: Starting...", name);
         long start = System.currentTimeMillis();
-        try {
-            run();
+        try (SimTrace trace = openTrace()) {
+            run(trace);
             long end = System.currentTimeMillis();
             this.runtime = (end - start) / 1000.0;
             log.info(STARTUP, String.format("%s: Running %.2fs", name, runtime));
@@ -90,12 +150,28 @@ public class SimStarter {
     }
 
 
-    private void run() throws Exception {
-        SIM_NAME = name;
-        RANDOM = random;
-        JOB_SEQUENCE_STRATEGY = jobSequenceStrategy;
-        // init cloudsim
+    private void run(SimTrace trace) throws Exception {
+        if (restoredSimulation != null) {
+            // continue the restored simulation on this thread
+            Simulation.setCurrent(restoredSimulation);
+            config.attach();
+            if (trace != null) {
+                trace.attach();
+            }
+            startProfiler();
+            simulate();
+            return;
+        }
+        // init cloudsim, a new simulation for this thread
         CloudSim.init(USERS, Calendar.getInstance(), TRACE_FLAG);
+        config.attach();
+        if (trace != null) {
+            trace.attach();
+        }
+        if (snapshotTime >= 0) {
+            CloudSim.getSimulation().snapshotAt(snapshotTime);
+        }
+        startProfiler();
         // create datacenters
         ExperimentUtil.createDatacenters();
         // create broker
@@ -106,10 +182,113 @@ public class SimStarter {
         // create workflow comparator
         Comparator<Workflow> comparator = comparatorClass.getDeclaredConstructor().newInstance().get(ascending);
         // submit workflows
-        List<Workflow> workflowList = daxPathList.stream().map(WorkflowParser::parse).sorted(comparator).toList();
+        List<Workflow> workflowList = WorkflowParser.parseAll(daxPathList).stream().sorted(comparator).toList();
         broker.submitWorkflowList(workflowList);
         // start simulation
-        CloudSim.startSimulation();
+        simulate();
+        snapshot = CloudSim.getSimulation().getSnapshot();
+    }
+
+
+    /**
+     * run the simulation to the end, from interval to interval when the metrics are enabled
+     */
+    private void simulate() {
+        if (METRICS_INTERVAL <= 0) {
+            CloudSim.startSimulation();
+            return;
+        }
+        double startTime = CloudSim.clock();
+        metrics = new MetricsRegistry(startTime);
+        metrics.attach();
+        try (MetricsExporter exporter = METRICS_DIR == null ? null : new MetricsExporter(Path.of(METRICS_DIR), name)) {
+            int intervalNum = 1;
+            while (CloudSim.runUntil(startTime + intervalNum * METRICS_INTERVAL)) {
+                takeMetricsSnapshot(startTime + intervalNum * METRICS_INTERVAL, exporter);
+                intervalNum++;
+            }
+            // the clock is reset at the end of the run, so the last interval ends with the last job
+            List<Cloudlet> receivedList = broker.getCloudletReceivedList();
+            double finishTime = receivedList.isEmpty() ? 0 : receivedList.getLast().getExecFinishTime();
+            if (finishTime > startTime + (intervalNum - 1) * METRICS_INTERVAL) {
+                takeMetricsSnapshot(finishTime, exporter);
+            }
+        } finally {
+            metrics.detach();
+        }
+    }
+
+
+    private void takeMetricsSnapshot(double time, MetricsExporter exporter) {
+        MetricsSnapshot snapshot = metrics.snapshot(time);
+        metricsSnapshotList.add(snapshot);
+        if (exporter != null) {
+            exporter.write(snapshot);
+        }
+    }
+
+
+    private SimTrace openTrace() {
+        if (SIM_TRACE_DIR == null) {
+            return null;
+        }
+        return SimTrace.open(Path.of(SIM_TRACE_DIR, name + ".trace"));
+    }
+
+
+    private void startProfiler() {
+        if (!ENABLE_PROFILER) {
+            return;
+        }
+        profiler = new SimulationProfiler();
+        CloudSim.getSimulation().setProfiler(profiler);
+        profiler.register(name);
+    }
+
+
+    /**
+     * run a new simulation from the snapshot of this one, the modifier changes the config of the snapshot, e.g. the
+     * fault seed or the max retry count, which only affects the parameters read after the snapshot time
+     *
+     * @param modifier changes the config of the snapshot
+     * @return the forked simulation
+     */
+    public SimStarter fork(UnaryOperator<ExperimentConfig> modifier) {
+        if (snapshot == null) {
+            throw new IllegalStateException(String.format("%s: No snapshot has been taken", name));
+        }
+        return new SimStarter(this, modifier);
+    }
+
+
+    /**
+     * run the simulations concurrently on at most parallelism threads, each simulation is created and run by one thread.
+     * The jobs, workflows and files are numbered per simulation, so their ids are the same as running the simulations
+     * one by one
+     *
+     * @param starterList creates and runs the simulations
+     * @return the simulations in the order of the list
+     */
+    public static List<SimStarter> startAll(List<Callable<SimStarter>> starterList, int parallelism) throws Exception {
+        if (starterList.size() <= 1 || parallelism <= 1) {
+            List<SimStarter> simStarterList = new ArrayList<>(starterList.size());
+            for (Callable<SimStarter> starter : starterList) {
+                simStarterList.add(starter.call());
+            }
+            return simStarterList;
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(starterList.size(), parallelism))) {
+            List<Future<SimStarter>> futureList = executor.invokeAll(starterList);
+            List<SimStarter> simStarterList = new ArrayList<>(futureList.size());
+            for (Future<SimStarter> future : futureList) {
+                try {
+                    simStarterList.add(future.get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+            return simStarterList;
+        }
     }
 
 
@@ -145,6 +324,23 @@ public class SimStarter {
         ExperimentUtil.printSimResult(broker.getCloudletReceivedList(), name);
     }
 
+    public void printProfileResult() {
+        if (profiler == null) {
+            throw new IllegalStateException(String.format("%s: The profiler is not enabled", name));
+        }
+        ExperimentUtil.printProfileResult(profiler, name);
+    }
+
+    /**
+     * cross-check the event-free replay of the plan against this simulation, which has to run without retries, e.g.
+     * with a max retry count of 0
+     *
+     * @param tolerance the largest relative deviation of the finish time and of the elec cost accepted
+     */
+    public ScheduleEvaluator.Validation validateEvaluator(double tolerance) {
+        return ScheduleEvaluator.validate(broker.getPlnSequence(), broker.getCloudletReceivedList(), config, tolerance);
+    }
+
     public void generateSimGanttData() {
         ExperimentUtil.generateSimGanttData(broker.getCloudletReceivedList(), name);
     }
@@ -0,0 +1,393 @@
+package com.qiujie.util;
+
+import com.qiujie.config.ExperimentConfig;
+import com.qiujie.entity.File;
+import com.qiujie.entity.Job;
+import com.qiujie.entity.Workflow;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+
+/**
+ * A workflow stored in the compact binary format and memory-mapped from disk.
+ * <p>
+ * The file holds an interned string table, job runtimes and depths, CSR parent/child arrays with the data size of each
+ * parent edge, and per-job file lists as primitive arrays. Nothing is copied to the heap when the file is loaded, the
+ * sections are read from the mapped buffer on demand, strings are decoded once on first use, and the {@link Job}
+ * objects are only built by {@link #toWorkflow()}. The runtimes are kept as in the DAX file, so that the length factor
+ * of the simulation that loads the workflow applies as it does to the xml files.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int magic, int version, int jobNum, int edgeNum, int fileNum, int stringNum, int stringBytes
+ * int[stringNum + 1] string offsets, byte[stringBytes] UTF-8 strings
+ * int workflow name
+ * int[jobNum] job names, double[jobNum] runtimes (NaN if missing), int[jobNum] depths
+ * int[jobNum + 1] parent offsets, int[edgeNum] parents, double[edgeNum] parent data sizes
+ * int[jobNum + 1] child offsets, int[edgeNum] children
+ * int[3 * jobNum + 1] file offsets, int[fileNum] file names, double[fileNum] file sizes
+ * </pre>
+ * The file lists of job i are the pred input files, the local input files and the output files at 3i, 3i+1 and 3i+2.
+ *
+ * @author qiujie
+ */
+@Slf4j
+public class BinaryWorkflow {
+
+    public static final String EXTENSION = ".wfb";
+
+    private static final int MAGIC = 0x57464231; // WFB1
+
+    private static final int VERSION = 2;
+
+    // the lists of each job in the file sections
+    private static final int FILE_LIST_NUM = 3;
+
+    private final ByteBuffer buffer;
+
+    @Getter
+    private final int jobNum;
+
+    @Getter
+    private final int edgeNum;
+
+    @Getter
+    private final int fileNum;
+
+    private final int stringOffsetPos;
+    private final int stringPos;
+    private final String[] strings;
+
+    private final int workflowNamePos;
+    private final int jobNamePos;
+    private final int runtimePos;
+    private final int depthPos;
+    private final int parentOffsetPos;
+    private final int parentPos;
+    private final int parentDataSizePos;
+    private final int childOffsetPos;
+    private final int childPos;
+    private final int fileOffsetPos;
+    private final int fileNamePos;
+    private final int fileSizePos;
+
+    private BinaryWorkflow(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a binary workflow of version " + VERSION);
+        }
+        this.jobNum = buffer.getInt(8);
+        this.edgeNum = buffer.getInt(12);
+        this.fileNum = buffer.getInt(16);
+        int stringNum = buffer.getInt(20);
+        int stringBytes = buffer.getInt(24);
+        this.strings = new String[stringNum];
+        this.stringOffsetPos = 28;
+        this.stringPos = stringOffsetPos + Integer.BYTES * (stringNum + 1);
+        this.workflowNamePos = stringPos + stringBytes;
+        this.jobNamePos = workflowNamePos + Integer.BYTES;
+        this.runtimePos = jobNamePos + Integer.BYTES * jobNum;
+        this.depthPos = runtimePos + Double.BYTES * jobNum;
+        this.parentOffsetPos = depthPos + Integer.BYTES * jobNum;
+        this.parentPos = parentOffsetPos + Integer.BYTES * (jobNum + 1);
+        this.parentDataSizePos = parentPos + Integer.BYTES * edgeNum;
+        this.childOffsetPos = parentDataSizePos + Double.BYTES * edgeNum;
+        this.childPos = childOffsetPos + Integer.BYTES * (jobNum + 1);
+        this.fileOffsetPos = childPos + Integer.BYTES * edgeNum;
+        this.fileNamePos = fileOffsetPos + Integer.BYTES * (FILE_LIST_NUM * jobNum + 1);
+        this.fileSizePos = fileNamePos + Integer.BYTES * fileNum;
+        if (fileSizePos + Double.BYTES * fileNum != buffer.limit()) {
+            throw new IllegalStateException(String.format("Binary workflow has %d bytes but its sections need %d", buffer.limit(), fileSizePos + Double.BYTES * fileNum));
+        }
+    }
+
+
+    /**
+     * memory-map a binary workflow file
+     *
+     * @param path file path
+     * @return binary workflow
+     */
+    public static BinaryWorkflow load(String path) {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new BinaryWorkflow(buffer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * convert a DAX file to the binary format
+     *
+     * @param daxPath    DAX file path
+     * @param binaryPath binary file path
+     */
+    public static void convert(String daxPath, String binaryPath) {
+        write(WorkflowParser.parse(daxPath), binaryPath);
+    }
+
+
+    /**
+     * write a parsed workflow in the binary format, with the DAX runtimes of its jobs
+     *
+     * @param workflow
+     * @param path     file path
+     */
+    public static void write(Workflow workflow, String path) {
+        List<Job> jobList = workflow.getJobList();
+        Map<Job, Integer> indexMap = new IdentityHashMap<>();
+        for (int i = 0; i < jobList.size(); i++) {
+            indexMap.put(jobList.get(i), i);
+        }
+        // intern all the strings
+        Map<String, Integer> stringMap = new LinkedHashMap<>();
+        int edgeNum = 0;
+        int childEdgeNum = 0;
+        int fileNum = 0;
+        intern(stringMap, workflow.getName());
+        for (Job job : jobList) {
+            intern(stringMap, job.getName());
+            edgeNum += job.getParentList().size();
+            childEdgeNum += job.getChildList().size();
+            for (List<File> fileList : getFileLists(job)) {
+                for (File file : fileList) {
+                    intern(stringMap, file.getName());
+                }
+                fileNum += fileList.size();
+            }
+        }
+        if (edgeNum != childEdgeNum) {
+            throw new IllegalStateException(String.format("Workflow %s has %d parent edges but %d child edges", workflow.getName(), edgeNum, childEdgeNum));
+        }
+        List<byte[]> stringBytesList = stringMap.keySet().stream().map(string -> string.getBytes(StandardCharsets.UTF_8)).toList();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(jobList.size());
+            out.writeInt(edgeNum);
+            out.writeInt(fileNum);
+            out.writeInt(stringBytesList.size());
+            out.writeInt(stringBytesList.stream().mapToInt(bytes -> bytes.length).sum());
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] bytes : stringBytesList) {
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+            for (byte[] bytes : stringBytesList) {
+                out.write(bytes);
+            }
+            out.writeInt(stringMap.get(workflow.getName()));
+            for (Job job : jobList) {
+                out.writeInt(stringMap.get(job.getName()));
+            }
+            for (Job job : jobList) {
+                out.writeDouble(job.getRuntime());
+            }
+            for (Job job : jobList) {
+                out.writeInt(job.getDepth());
+            }
+            // parents
+            offset = 0;
+            out.writeInt(offset);
+            for (Job job : jobList) {
+                offset += job.getParentList().size();
+                out.writeInt(offset);
+            }
+            for (Job job : jobList) {
+                for (Job parent : job.getParentList()) {
+                    out.writeInt(indexMap.get(parent));
+                }
+            }
+            for (Job job : jobList) {
+                for (int i = 0; i < job.getParentList().size(); i++) {
+                    out.writeDouble(job.getParentDataSize(i));
+                }
+            }
+            // children
+            offset = 0;
+            out.writeInt(offset);
+            for (Job job : jobList) {
+                offset += job.getChildList().size();
+                out.writeInt(offset);
+            }
+            for (Job job : jobList) {
+                for (Job child : job.getChildList()) {
+                    out.writeInt(indexMap.get(child));
+                }
+            }
+            // files
+            offset = 0;
+            out.writeInt(offset);
+            for (Job job : jobList) {
+                for (List<File> fileList : getFileLists(job)) {
+                    offset += fileList.size();
+                    out.writeInt(offset);
+                }
+            }
+            for (Job job : jobList) {
+                for (List<File> fileList : getFileLists(job)) {
+                    for (File file : fileList) {
+                        out.writeInt(file.getName() == null ? -1 : stringMap.get(file.getName()));
+                    }
+                }
+            }
+            for (Job job : jobList) {
+                for (List<File> fileList : getFileLists(job)) {
+                    for (File file : fileList) {
+                        out.writeDouble(file.getSize());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    public String getName() {
+        return getString(buffer.getInt(workflowNamePos));
+    }
+
+    public String getJobName(int jobIndex) {
+        return getString(buffer.getInt(jobNamePos + Integer.BYTES * jobIndex));
+    }
+
+    /**
+     * @return the DAX runtime of the job, NaN if missing
+     */
+    public double getRuntime(int jobIndex) {
+        return buffer.getDouble(runtimePos + Double.BYTES * jobIndex);
+    }
+
+    public int getDepth(int jobIndex) {
+        return buffer.getInt(depthPos + Integer.BYTES * jobIndex);
+    }
+
+    public int getParentNum(int jobIndex) {
+        return getOffset(parentOffsetPos, jobIndex + 1) - getOffset(parentOffsetPos, jobIndex);
+    }
+
+    /**
+     * @return the job index of the parent at the position in the parent list
+     */
+    public int getParent(int jobIndex, int parentIndex) {
+        return buffer.getInt(parentPos + Integer.BYTES * (getOffset(parentOffsetPos, jobIndex) + parentIndex));
+    }
+
+    public double getParentDataSize(int jobIndex, int parentIndex) {
+        return buffer.getDouble(parentDataSizePos + Double.BYTES * (getOffset(parentOffsetPos, jobIndex) + parentIndex));
+    }
+
+    public int getChildNum(int jobIndex) {
+        return getOffset(childOffsetPos, jobIndex + 1) - getOffset(childOffsetPos, jobIndex);
+    }
+
+    public int getChild(int jobIndex, int childIndex) {
+        return buffer.getInt(childPos + Integer.BYTES * (getOffset(childOffsetPos, jobIndex) + childIndex));
+    }
+
+
+    /**
+     * build the workflow, in the same state as the parser leaves it, with the length factor of the current simulation
+     *
+     * @return workflow
+     */
+    public Workflow toWorkflow() {
+        double lengthFactor = ExperimentConfig.current().getLengthFactor();
+        List<Job> jobList = new ArrayList<>(jobNum);
+        for (int i = 0; i < jobNum; i++) {
+            Job job = new Job(getJobName(i), WorkflowParser.getLength(getRuntime(i), lengthFactor));
+            job.setRuntime(getRuntime(i));
+            job.setDepth(getDepth(i));
+            jobList.add(job);
+        }
+        for (int i = 0; i < jobNum; i++) {
+            Job job = jobList.get(i);
+            int parentNum = getParentNum(i);
+            double[] parentDataSizes = new double[parentNum];
+            for (int j = 0; j < parentNum; j++) {
+                job.getParentList().add(jobList.get(getParent(i, j)));
+                parentDataSizes[j] = getParentDataSize(i, j);
+            }
+            job.setParentDataSizes(parentDataSizes);
+            for (int j = 0; j < getChildNum(i); j++) {
+                job.getChildList().add(jobList.get(getChild(i, j)));
+            }
+            List<List<File>> fileLists = getFileLists(job);
+            for (int k = 0; k < FILE_LIST_NUM; k++) {
+                int fileListIndex = FILE_LIST_NUM * i + k;
+                for (int f = getOffset(fileOffsetPos, fileListIndex); f < getOffset(fileOffsetPos, fileListIndex + 1); f++) {
+                    fileLists.get(k).add(new File(getString(buffer.getInt(fileNamePos + Integer.BYTES * f)), buffer.getDouble(fileSizePos + Double.BYTES * f)));
+                }
+            }
+        }
+        return new Workflow(getName(), jobList);
+    }
+
+
+    private int getOffset(int offsetPos, int index) {
+        return buffer.getInt(offsetPos + Integer.BYTES * index);
+    }
+
+    /**
+     * decode an interned string on first use
+     */
+    private String getString(int stringIndex) {
+        if (stringIndex < 0) {
+            return null;
+        }
+        String string = strings[stringIndex];
+        if (string == null) {
+            int start = getOffset(stringOffsetPos, stringIndex);
+            byte[] bytes = new byte[getOffset(stringOffsetPos, stringIndex + 1) - start];
+            buffer.get(stringPos + start, bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+            strings[stringIndex] = string;
+        }
+        return string;
+    }
+
+    private static void intern(Map<String, Integer> stringMap, String string) {
+        if (string != null) {
+            stringMap.putIfAbsent(string, stringMap.size());
+        }
+    }
+
+    private static List<List<File>> getFileLists(Job job) {
+        return List.of(job.getPredInputFileList(), job.getLocalInputFileList(), job.getOutputFileList());
+    }
+
+
+    /**
+     * convert the DAX files, or all the DAX files in data/dax, next to themselves
+     */
+    public static void main(String[] args) {
+        List<String> daxPathList = new ArrayList<>(List.of(args));
+        if (daxPathList.isEmpty()) {
+            java.io.File[] daxFiles = Objects.requireNonNull(new java.io.File("data/dax").listFiles((dir, name) -> name.endsWith(".xml")));
+            Arrays.stream(daxFiles).map(java.io.File::getPath).sorted().forEach(daxPathList::add);
+        }
+        for (String daxPath : daxPathList) {
+            String binaryPath = daxPath.substring(0, daxPath.lastIndexOf(".")) + EXTENSION;
+            convert(daxPath, binaryPath);
+            log.info("{} → {}", daxPath, binaryPath);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.CharsetUtil;
 import cn.hutool.json.*;
+import com.qiujie.config.ExperimentConfig;
 import com.qiujie.config.FvConfig;
 import com.qiujie.config.HostConfig;
 import com.qiujie.config.VmConfig;
@@ -17,6 +18,7 @@ import io.bretty.console.table.ColumnFormatter;
 import io.bretty.console.table.Precision;
 import io.bretty.console.table.Table;
 import org.cloudbus.cloudsim.*;
+import org.cloudbus.cloudsim.core.SimulationProfiler;
 import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
@@ -26,8 +28,6 @@ import org.knowm.xchart.XYChartBuilder;
 import org.knowm.xchart.style.Styler;
 
 import java.io.File;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.*;
 import java.util.stream.IntStream;
 
@@ -115,6 +115,33 @@ public class ExperimentUtil {
     }
 
 
+    /**
+     * print the profile of the event loop of a simulation
+     *
+     * @param profiler the profiler of the simulation
+     */
+    public static void printProfileResult(SimulationProfiler profiler, String str) {
+        System.out.println();
+        System.out.println("                                                  " + str + " Profile Result");
+        System.out.printf("%d events in %d ticks, %.2f simulated s, %.3f wall s, %.2f events/simulated s, %.2f events/wall s%n",
+                profiler.getNumEvents(), profiler.getNumTicks(), profiler.getClock(), profiler.getWallTime(), profiler.getEventsPerSimulatedSecond(), profiler.getEventsPerWallSecond());
+        System.out.printf("Future queue depth p50 %d, p90 %d, p99 %d, max %d%n",
+                profiler.getQueueDepthP50(), profiler.getQueueDepthP90(), profiler.getQueueDepthP99(), profiler.getQueueDepthMax());
+        List<Map.Entry<String, Long>> tagList = profiler.getEventCountsByTag().entrySet().stream().sorted(Map.Entry.<String, Long>comparingByValue().reversed()).toList();
+        Table.Builder tagBuilder = new Table.Builder("Tag", tagList.stream().map(Map.Entry::getKey).toArray(String[]::new), ColumnFormatter.text(Alignment.CENTER, 50))
+                .addColumn("Events", tagList.stream().map(Map.Entry::getValue).toArray(Number[]::new), ColumnFormatter.number(Alignment.CENTER, 15, Precision.ZERO));
+        System.out.println(tagBuilder.build());
+        Map<String, Long> entityEvents = profiler.getEventCountsByEntityClass();
+        List<Map.Entry<String, Long>> entityList = profiler.getProcessingNanosByEntityClass().entrySet().stream().sorted(Map.Entry.<String, Long>comparingByValue().reversed()).toList();
+        Table.Builder entityBuilder = new Table.Builder("Entity_Class", entityList.stream().map(Map.Entry::getKey).toArray(String[]::new), ColumnFormatter.text(Alignment.CENTER, 30))
+                .addColumn("Events", entityList.stream().map(entry -> entityEvents.get(entry.getKey())).toArray(Number[]::new), ColumnFormatter.number(Alignment.CENTER, 15, Precision.ZERO))
+                .addColumn("Process_Time_ms", entityList.stream().map(entry -> entry.getValue() / 1e6).toArray(Number[]::new), ColumnFormatter.number(Alignment.CENTER, 20, Precision.TWO))
+                .addColumn("Per_Event_us", entityList.stream().map(entry -> entry.getValue() / 1e3 / entityEvents.get(entry.getKey())).toArray(Number[]::new), ColumnFormatter.number(Alignment.CENTER, 15, Precision.TWO));
+        System.out.println(entityBuilder.build());
+        System.out.println();
+    }
+
+
     /**
      * create VMs
      *
@@ -124,8 +151,16 @@ public class ExperimentUtil {
     public static List<Vm> createVms(int userId) {
         List<Vm> list = new ArrayList<>();
         List<VmConfig> vmConfigList = readVmConfig();
+        // the first fv index of each vm type, fvs of the vms with the same type share the same index
+        List<Integer> fvIndexOffsetList = new ArrayList<>();
+        int fvNum = 0;
+        for (VmConfig vmConfig : vmConfigList) {
+            fvIndexOffsetList.add(fvNum);
+            fvNum += vmConfig.getFvConfigList().size();
+        }
         //create VMs
-        for (int i = 0; i < VMS; i++) {
+        int vms = ExperimentConfig.current().getVms();
+        for (int i = 0; i < vms; i++) {
             VmConfig vmConfig = vmConfigList.get(i % vmConfigList.size());
             DvfsVm vm = new DvfsVm(i, userId, vmConfig.getMips(), vmConfig.getPes(), vmConfig.getFrequency(), VM_RAM, VM_BW, VM_SIZE, VMM, new DvfsCloudletSchedulerSpaceShared());
             vm.setType(vmConfig.getName());
@@ -138,6 +173,7 @@ public class ExperimentUtil {
                 int level = fvConfigList.indexOf(fvConfig);
                 Fv fv = new Fv()
                         .setLevel(level)
+                        .setIndex(fvIndexOffsetList.get(i % vmConfigList.size()) + level)
                         .setLambda(lambda).setType(vmConfig.getName() + "_" + level)
                         .setVm(vm).setMips(mips).setFrequency(fvConfig.getFrequency()).setPower(fvConfig.getPower());
                 fvList.add(fv);
@@ -172,7 +208,7 @@ public class ExperimentUtil {
             DatacenterCharacteristics characteristics = new DatacenterCharacteristics(ARCH, OS, VMM, hostList, TIME_ZONE, COST_PER_SEC, COST_PER_MEM, COST_PER_STORAGE, COST_PER_BW);
             try {
                 List<Double> elecPrice = new ArrayList<>(ELEC_PRICES.get(i % ELEC_PRICES.size()));
-                list.add(new WorkflowDatacenter(characteristics, new VmAllocationPolicySimple(hostList), new LinkedList<>(), DC_SCHEDULING_INTERVAL, elecPrice));
+                list.add(new WorkflowDatacenter(characteristics, new VmAllocationPolicySimple(hostList), new LinkedList<>(), ExperimentConfig.current().getDcSchedulingInterval(), elecPrice));
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -230,12 +266,18 @@ public class ExperimentUtil {
 
 
     public static double calculatePredecessorDataTransferTime(Job job, Host host, Job parentJob, Host parentHost) {
+        return calculatePredecessorDataTransferTime(job.getParentDataSize(parentJob), host, parentHost);
+    }
+
+
+    /**
+     * @param dataSize the size of the data on the edge, see {@link Job#getParentDataSize(int)}
+     */
+    public static double calculatePredecessorDataTransferTime(double dataSize, Host host, Host parentHost) {
         // No data transfer time is required if the job and its parent are on the same host.
         if (host.getId() == parentHost.getId()) {
             return 0;
         }
-        List<String> parentOutputFiles = parentJob.getOutputFileList().stream().map(com.qiujie.entity.File::getName).toList();
-        double dataSize = job.getPredInputFileList().stream().filter(file -> parentOutputFiles.contains(file.getName())).mapToDouble(com.qiujie.entity.File::getSize).sum();
         return host.getDatacenter().getId() == parentHost.getDatacenter().getId() ? dataSize / INTRA_BANDWIDTH : dataSize / INTER_BANDWIDTH;
     }
 
@@ -280,7 +322,7 @@ public class ExperimentUtil {
      * @Returns a random integer in the range [0, maxValue).
      */
     public static int getRandomValue(final int maxValue) {
-        final double uniform = RANDOM.sample();
+        final double uniform = ExperimentConfig.current().getRandom().sample();
         return (int) (uniform >= 1 ? uniform % maxValue : uniform * maxValue);
     }
 
@@ -302,18 +344,4 @@ public class ExperimentUtil {
     }
 
 
-    /**
-     * round to scale
-     *
-     * @param value
-     * @param scale
-     * @return
-     */
-    public static double roundToScale(double value, int scale) {
-        BigDecimal bd = BigDecimal.valueOf(value);
-        bd = bd.setScale(scale, RoundingMode.HALF_UP);
-        return bd.doubleValue();
-    }
-
-
 }
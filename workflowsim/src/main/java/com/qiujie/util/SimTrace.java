@@ -0,0 +1,247 @@
+package com.qiujie.util;
+
+import com.qiujie.entity.Job;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CoreAttributes;
+import org.cloudbus.cloudsim.core.GuestEntity;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.Simulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * a binary trace of a simulation, attached to this run of it, which replaces the log messages the broker, the
+ * datacenters and the schedulers write for every vm and job: fixed-size records are appended to a memory-mapped file
+ * without boxing or formatting, and {@link TraceDecoder} renders them as the log offline
+ * <p>
+ * a record is {@link #RECORD_SIZE} little-endian bytes: the time, the type, the entity id, the job id, the vm id and a
+ * value. a name is written once, the first time its id is traced, as a {@link Type#NAME} record followed by its UTF-8
+ * bytes padded to whole records
+ */
+public final class SimTrace implements Closeable {
+
+    // "WSTRACE1", the first 8 bytes of a trace
+    public static final long MAGIC = 0x5753545241434531L;
+
+    public static final int RECORD_SIZE = 32;
+
+    // the size of the mapped regions of the file, a multiple of the record size
+    private static final int REGION_SIZE = 4 << 20;
+
+    // the longest name kept, in bytes
+    private static final int MAX_NAME_SIZE = 1024;
+
+    /**
+     * the type of a record, its ordinal is written, so new types are only appended
+     */
+    public enum Type {
+        // the unwritten rest of a region
+        PADDING,
+        // entity: the name kind, job: the id, vm: the size of the name in bytes
+        NAME,
+        // entity: the broker, job: the host, vm: the vm, value: the datacenter
+        VM_CREATED,
+        // entity: the broker, vm: the vm, value: the datacenter
+        VM_CREATION_FAILED,
+        // entity: the broker, job: the job, vm: the vm
+        JOB_SUBMITTED,
+        // entity: the datacenter, job: the job, vm: the vm
+        JOB_QUEUED,
+        // entity: the datacenter, job: the job, vm: the vm, value: the retry count
+        JOB_RETRIED,
+        // entity: the broker, job: the job, vm: the vm, value: the number of returned jobs
+        JOB_RETURNED
+    }
+
+    /**
+     * the ids a name is written for
+     */
+    public enum NameKind {
+        ENTITY,
+        JOB,
+        VM_CLASS,
+        HOST_CLASS
+    }
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    // the position of the mapped region in the file
+    private long regionPosition;
+
+    // the ids whose name has been written, per name kind
+    private final BitSet[] namedIds;
+
+    // the traced simulation, or null if the trace is not attached
+    private Simulation simulation;
+
+
+    private SimTrace(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.namedIds = new BitSet[NameKind.values().length];
+        for (int i = 0; i < namedIds.length; i++) {
+            namedIds[i] = new BitSet();
+        }
+        map(0);
+        buffer.putLong(MAGIC);
+        buffer.position(RECORD_SIZE);
+    }
+
+    /**
+     * create a trace file, replacing the existing one
+     */
+    public static SimTrace open(Path path) {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            return new SimTrace(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot create the trace %s", path), e);
+        }
+    }
+
+    /**
+     * the trace of the current simulation of the calling thread, or null if it is not traced
+     */
+    public static SimTrace current() {
+        return CloudSim.getSimulation().getTransientAttribute(SimTrace.class);
+    }
+
+    /**
+     * trace the current simulation of the calling thread, until the trace is closed, the snapshots of the simulation
+     * are not traced
+     */
+    public void attach() {
+        simulation = CloudSim.getSimulation();
+        simulation.setTransientAttribute(SimTrace.class, this);
+    }
+
+
+    public void vmCreated(SimEntity broker, GuestEntity vm, int datacenterId) {
+        nameEntity(broker);
+        nameClass(NameKind.VM_CLASS, vm.getId(), vm);
+        nameClass(NameKind.HOST_CLASS, vm.getHost().getId(), vm.getHost());
+        write(Type.VM_CREATED, broker.getId(), vm.getHost().getId(), vm.getId(), datacenterId);
+    }
+
+    public void vmCreationFailed(SimEntity broker, GuestEntity vm, int datacenterId) {
+        nameEntity(broker);
+        nameClass(NameKind.VM_CLASS, vm.getId(), vm);
+        write(Type.VM_CREATION_FAILED, broker.getId(), -1, vm.getId(), datacenterId);
+    }
+
+    public void jobSubmitted(SimEntity broker, Job job, GuestEntity vm) {
+        nameEntity(broker);
+        nameJob(job);
+        nameClass(NameKind.VM_CLASS, vm.getId(), vm);
+        write(Type.JOB_SUBMITTED, broker.getId(), job.getCloudletId(), vm.getId(), 0);
+    }
+
+    public void jobQueued(SimEntity datacenter, Job job, GuestEntity vm) {
+        nameEntity(datacenter);
+        nameJob(job);
+        nameClass(NameKind.VM_CLASS, vm.getId(), vm);
+        write(Type.JOB_QUEUED, datacenter.getId(), job.getCloudletId(), vm.getId(), 0);
+    }
+
+    public void jobRetried(SimEntity datacenter, Job job) {
+        nameEntity(datacenter);
+        nameJob(job);
+        write(Type.JOB_RETRIED, datacenter.getId(), job.getCloudletId(), job.getGuestId(), job.getRetryCount());
+    }
+
+    public void jobReturned(SimEntity broker, Job job, int returnedNum) {
+        nameEntity(broker);
+        nameJob(job);
+        write(Type.JOB_RETURNED, broker.getId(), job.getCloudletId(), job.getGuestId(), returnedNum);
+    }
+
+
+    private void nameEntity(SimEntity entity) {
+        if (!namedIds[NameKind.ENTITY.ordinal()].get(entity.getId())) {
+            writeName(NameKind.ENTITY, entity.getId(), entity.getName());
+        }
+    }
+
+    private void nameJob(Job job) {
+        if (!namedIds[NameKind.JOB.ordinal()].get(job.getCloudletId())) {
+            writeName(NameKind.JOB, job.getCloudletId(), job.getName());
+        }
+    }
+
+    private void nameClass(NameKind kind, int id, CoreAttributes object) {
+        if (!namedIds[kind.ordinal()].get(id)) {
+            writeName(kind, id, object.getClassName());
+        }
+    }
+
+    private void writeName(NameKind kind, int id, String name) {
+        namedIds[kind.ordinal()].set(id);
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int size = Math.min(bytes.length, MAX_NAME_SIZE);
+        int paddedSize = (size + RECORD_SIZE - 1) / RECORD_SIZE * RECORD_SIZE;
+        ensureCapacity(RECORD_SIZE + paddedSize);
+        putRecord(Type.NAME, 0, kind.ordinal(), id, size, 0);
+        buffer.put(bytes, 0, size);
+        buffer.position(buffer.position() + paddedSize - size);
+    }
+
+    private void write(Type type, int entityId, int jobId, int vmId, double value) {
+        ensureCapacity(RECORD_SIZE);
+        putRecord(type, CloudSim.clock(), entityId, jobId, vmId, value);
+    }
+
+    private void putRecord(Type type, double time, int entityId, int jobId, int vmId, double value) {
+        buffer.putDouble(time).putInt(type.ordinal()).putInt(entityId).putInt(jobId).putInt(vmId).putDouble(value);
+    }
+
+    /**
+     * map the next region when the rest of the current one is too small, the rest is left as padding
+     */
+    private void ensureCapacity(int size) {
+        if (buffer.remaining() < size) {
+            map(regionPosition + REGION_SIZE);
+        }
+    }
+
+    private void map(long position) {
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, REGION_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            regionPosition = position;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot map the trace %s", path), e);
+        }
+    }
+
+    /**
+     * close the file, the unwritten rest of the last region is read as padding
+     */
+    @Override
+    public void close() {
+        if (simulation != null && simulation.getTransientAttribute(SimTrace.class) == this) {
+            simulation.setTransientAttribute(SimTrace.class, null);
+        }
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot close the trace %s", path), e);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.qiujie.util;
+
+import com.qiujie.util.SimTrace.NameKind;
+import com.qiujie.util.SimTrace.Type;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * render a {@link SimTrace} as the log messages it replaces, in the layout of the log file without the wall time and
+ * the thread
+ * <p>
+ * usage: TraceDecoder trace [output], the log is printed to the standard output if no output file is given
+ */
+public class TraceDecoder {
+
+    private static final String BROKER_LOGGER = "com.qiujie.core.WorkflowBroker";
+    private static final String DATACENTER_LOGGER = "com.qiujie.core.WorkflowDatacenter";
+    private static final String SCHEDULER_LOGGER = "com.qiujie.core.DvfsCloudletSchedulerSpaceShared";
+
+    // the records read from the file at once
+    private static final int BATCH_SIZE = 4096 * SimTrace.RECORD_SIZE;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer;
+
+    // the names read so far, per name kind
+    private final List<Map<Integer, String>> names;
+
+
+    private TraceDecoder(FileChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BATCH_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.limit(0);
+        this.names = new ArrayList<>();
+        for (int i = 0; i < NameKind.values().length; i++) {
+            names.add(new HashMap<>());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TraceDecoder trace [output]");
+            System.exit(1);
+        }
+        Path trace = Path.of(args[0]);
+        if (args.length > 1) {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Path.of(args[1]), StandardCharsets.UTF_8))) {
+                decode(trace, out);
+            }
+        } else {
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+            decode(trace, out);
+            out.flush();
+        }
+    }
+
+    /**
+     * render the trace as log lines
+     *
+     * @return the number of lines
+     */
+    public static long decode(Path trace, PrintWriter out) throws IOException {
+        try (FileChannel channel = FileChannel.open(trace, StandardOpenOption.READ)) {
+            TraceDecoder decoder = new TraceDecoder(channel);
+            if (!decoder.nextRecord() || decoder.buffer.getLong() != SimTrace.MAGIC) {
+                throw new IllegalStateException(String.format("%s is not a simulation trace", trace));
+            }
+            decoder.buffer.position(decoder.buffer.position() + SimTrace.RECORD_SIZE - Long.BYTES);
+            return decoder.decode(out);
+        }
+    }
+
+    private long decode(PrintWriter out) throws IOException {
+        Type[] types = Type.values();
+        long lineNum = 0;
+        while (nextRecord()) {
+            double time = buffer.getDouble();
+            int typeOrdinal = buffer.getInt();
+            int entityId = buffer.getInt();
+            int jobId = buffer.getInt();
+            int vmId = buffer.getInt();
+            double value = buffer.getDouble();
+            if (typeOrdinal < 0 || typeOrdinal >= types.length) {
+                throw new IllegalStateException(String.format("Unknown record type %d", typeOrdinal));
+            }
+            String line = switch (types[typeOrdinal]) {
+                case PADDING -> null;
+                case NAME -> {
+                    readName(NameKind.values()[entityId], jobId, vmId);
+                    yield null;
+                }
+                case VM_CREATED -> String.format("INFO  %s - %s: %s: %s #%d has been created in Datacenter #%d, %s #%d", BROKER_LOGGER,
+                        time, name(NameKind.ENTITY, entityId), name(NameKind.VM_CLASS, vmId), vmId, (int) value, name(NameKind.HOST_CLASS, jobId), jobId);
+                case VM_CREATION_FAILED -> String.format("TRACE %s - %s: %s: Creation of %s #%d failed in Datacenter #%d", BROKER_LOGGER,
+                        time, name(NameKind.ENTITY, entityId), name(NameKind.VM_CLASS, vmId), vmId, (int) value);
+                case JOB_SUBMITTED -> String.format("INFO  %s - %s: %s: Sending Job #%d %s to %s #%d", BROKER_LOGGER,
+                        time, name(NameKind.ENTITY, entityId), jobId, name(NameKind.JOB, jobId), name(NameKind.VM_CLASS, vmId), vmId);
+                case JOB_QUEUED -> String.format("TRACE %s - %s %s: Job #%d is paused because not enough free PEs on %s #%d", DATACENTER_LOGGER,
+                        time, name(NameKind.ENTITY, entityId), jobId, name(NameKind.VM_CLASS, vmId), vmId);
+                case JOB_RETRIED -> String.format("WARN  %s - %s: Retry %d for Job #%d %s", SCHEDULER_LOGGER,
+                        time, (int) value, jobId, name(NameKind.JOB, jobId));
+                case JOB_RETURNED -> String.format("INFO  %s - %s: %s: Job #%d %s return received, the number of finished Cloudlets is %d", BROKER_LOGGER,
+                        time, name(NameKind.ENTITY, entityId), jobId, name(NameKind.JOB, jobId), (int) value);
+            };
+            if (line != null) {
+                out.println(line);
+                lineNum++;
+            }
+        }
+        return lineNum;
+    }
+
+    /**
+     * read the bytes of a name, which follow its record padded to whole records
+     */
+    private void readName(NameKind kind, int id, int size) throws IOException {
+        byte[] bytes = new byte[size];
+        int read = 0;
+        while (read < size) {
+            if (!nextRecord()) {
+                throw new IllegalStateException(String.format("The %s name of #%d is truncated", kind, id));
+            }
+            int length = Math.min(SimTrace.RECORD_SIZE, size - read);
+            buffer.get(bytes, read, length);
+            buffer.position(buffer.position() + SimTrace.RECORD_SIZE - length);
+            read += length;
+        }
+        names.get(kind.ordinal()).put(id, new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private String name(NameKind kind, int id) {
+        return names.get(kind.ordinal()).getOrDefault(id, "?");
+    }
+
+    /**
+     * make the next record available in the buffer
+     *
+     * @return false at the end of the file
+     */
+    private boolean nextRecord() throws IOException {
+        if (buffer.remaining() >= SimTrace.RECORD_SIZE) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < SimTrace.RECORD_SIZE) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+}
@@ -2,6 +2,7 @@
 package com.qiujie.util;
 
 import com.qiujie.Constants;
+import com.qiujie.config.ExperimentConfig;
 import com.qiujie.entity.File;
 import com.qiujie.entity.Job;
 import com.qiujie.entity.Workflow;
@@ -11,8 +12,17 @@ import org.jdom2.Element;
 import org.jdom2.JDOMException;
 import org.jdom2.input.SAXBuilder;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 
@@ -21,19 +31,80 @@ public class WorkflowParser {
 
 
     /**
-     * Parse the xml file and return workflow
+     * Parse the workflow file and return workflow, files with the {@link BinaryWorkflow#EXTENSION} extension are
+     * memory-mapped, xml files larger than {@link Constants#STREAMING_PARSE_THRESHOLD} are parsed in streaming mode
      *
      * @param path file path
      * @return workflow
      */
     public static Workflow parse(String path) {
+        return read(path).get();
+    }
+
+
+    /**
+     * Parse the workflow files in parallel on at most {@link Constants#PARSE_PARALLELISM} threads.
+     * The files are only read concurrently, the jobs, files and workflows are then built one workflow at a time in the
+     * order of the paths, so that they get the same ids as parsing the paths one by one
+     *
+     * @param pathList file paths
+     * @return workflows in the order of the paths
+     */
+    public static List<Workflow> parseAll(List<String> pathList) {
+        List<Supplier<Workflow>> builderList;
+        if (pathList.size() <= 1 || Constants.PARSE_PARALLELISM <= 1) {
+            builderList = pathList.stream().map(WorkflowParser::read).toList();
+        } else {
+            try (ForkJoinPool pool = new ForkJoinPool(Math.min(pathList.size(), Constants.PARSE_PARALLELISM))) {
+                builderList = pool.submit(() -> pathList.parallelStream().map(WorkflowParser::read).toList()).join();
+            }
+        }
+        return builderList.stream().map(Supplier::get).toList();
+    }
+
+
+    /**
+     * Parse the xml file with a JDOM document
+     *
+     * @param path file path
+     * @return workflow
+     */
+    public static Workflow parseDom(String path) {
+        return readDom(path).build();
+    }
+
+
+    /**
+     * Parse the xml file in a single pass with a StAX reader, without building a document, so that besides the jobs and
+     * files themselves the memory only holds their values in primitive arrays
+     *
+     * @param path file path
+     * @return workflow
+     */
+    public static Workflow parseStream(String path) {
+        return readStream(path).build();
+    }
+
+
+    /**
+     * read the workflow file without creating any job, file or workflow
+     *
+     * @return builder of the workflow
+     */
+    private static Supplier<Workflow> read(String path) {
+        java.io.File daxFile = getDaxFile(path);
+        if (daxFile.getName().endsWith(BinaryWorkflow.EXTENSION)) {
+            return BinaryWorkflow.load(path)::toWorkflow;
+        }
+        return (daxFile.length() >= Constants.STREAMING_PARSE_THRESHOLD ? readStream(path) : readDom(path))::build;
+    }
+
+
+    private static DaxGraph readDom(String path) {
         SAXBuilder builder = new SAXBuilder();
         // parse using builder to get DOM representation of the XML file
-        java.io.File daxFile = new java.io.File(path);
-        String workflowName = daxFile.getName().substring(0, daxFile.getName().lastIndexOf("."));
-        if (!daxFile.exists()) {
-            throw new RuntimeException("Warning: path " + daxFile.getAbsolutePath() + " not exist");
-        }
+        java.io.File daxFile = getDaxFile(path);
+        DaxGraph graph = new DaxGraph(getWorkflowName(daxFile));
         Document dom;
         try {
             dom = builder.build(daxFile);
@@ -41,110 +112,348 @@ public class WorkflowParser {
             throw new RuntimeException(e);
         }
         Element root = dom.getRootElement();
-        Map<String, Job> nodeMap = new LinkedHashMap<>();
         for (Element node : root.getChildren()) {
             switch (node.getName().toLowerCase()) {
                 case "job":
-                    String id = node.getAttributeValue("id");
-                    long length = 0;
-                    String runtime = node.getAttributeValue("runtime");
-                    if (runtime != null) {
-                        length = (long) (Constants.LENGTH_FACTOR * Double.parseDouble(runtime));
-                        if (length < 100) {
-                            length = 100;
-                        }
-                    } else {
-                        log.error("Cannot find runtime for " + id);
-                    }
-                    Job job = new Job(workflowName + "_" + id, length);
+                    int job = graph.addJob(node.getAttributeValue("id"), node.getAttributeValue("runtime"));
                     for (Element fileNode : node.getChildren()) {
                         if (fileNode.getName().equalsIgnoreCase("uses")) {
-                            String fileName = fileNode.getAttributeValue("name"); // DAX version 3.3
-                            if (fileName == null) {
-                                fileName = fileNode.getAttributeValue("file"); // DAX version 3.0
-                            }
-                            if (fileName == null) {
-                                log.error("File name not found");
-                            }
-                            String link = fileNode.getAttributeValue("link");
-                            double size = 0.0;
-                            String fileSize = fileNode.getAttributeValue("size");
-                            if (fileSize != null) {
-                                size = Double.parseDouble(fileSize);
-                                if (size < 100) {
-                                    size = 100;
-                                }
-                            } else {
-                                log.warn("File size not found for " + fileName);
-                            }
-                            switch (link) {
-                                case "input":
-                                    job.getPredInputFileList().add(new File(fileName, size));
-                                    break;
-                                case "output":
-                                    job.getOutputFileList().add(new File(fileName, size));
-                                    break;
-                                default:
-                                    log.warn("Cannot identify file type");
-                                    break;
-                            }
+                            graph.addFile(job, fileNode.getAttributeValue("name"), fileNode.getAttributeValue("file"), fileNode.getAttributeValue("link"), fileNode.getAttributeValue("size"));
                         }
                     }
-                    nodeMap.put(id, job);
-
                     break;
                 case "child":
                     String childName = node.getAttributeValue("ref");
-                    if (nodeMap.containsKey(childName)) {
-                        Job childJob = nodeMap.get(childName);
-                        for (Element parent : node.getChildren()) {
-                            String parentName = parent.getAttributeValue("ref");
-                            if (nodeMap.containsKey(parentName)) {
-                                Job parentJob = nodeMap.get(parentName);
-                                parentJob.addChild(childJob);
-                                childJob.addParent(parentJob);
+                    for (Element parent : node.getChildren()) {
+                        graph.addEdge(childName, parent.getAttributeValue("ref"));
+                    }
+                    break;
+            }
+        }
+        return graph;
+    }
+
+
+    private static DaxGraph readStream(String path) {
+        java.io.File daxFile = getDaxFile(path);
+        DaxGraph graph = new DaxGraph(getWorkflowName(daxFile));
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(daxFile))) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                // the root is at depth 1, jobs and child nodes at depth 2, files and parent nodes at depth 3
+                int depth = 0;
+                int job = -1;
+                String childName = null;
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT:
+                            depth++;
+                            String name = reader.getLocalName();
+                            if (depth == 2) {
+                                switch (name.toLowerCase()) {
+                                    case "job":
+                                        job = graph.addJob(reader.getAttributeValue(null, "id"), reader.getAttributeValue(null, "runtime"));
+                                        break;
+                                    case "child":
+                                        childName = reader.getAttributeValue(null, "ref");
+                                        break;
+                                }
+                            } else if (depth == 3) {
+                                if (job >= 0 && name.equalsIgnoreCase("uses")) {
+                                    graph.addFile(job, reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "file"), reader.getAttributeValue(null, "link"), reader.getAttributeValue(null, "size"));
+                                } else if (childName != null) {
+                                    graph.addEdge(childName, reader.getAttributeValue(null, "ref"));
+                                }
                             }
-                        }
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            if (depth == 2) {
+                                job = -1;
+                                childName = null;
+                            }
+                            depth--;
+                            break;
                     }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | IOException e) {
+            throw new RuntimeException(e);
+        }
+        return graph;
+    }
+
+
+    private static java.io.File getDaxFile(String path) {
+        java.io.File daxFile = new java.io.File(path);
+        if (!daxFile.exists()) {
+            throw new RuntimeException("Warning: path " + daxFile.getAbsolutePath() + " not exist");
+        }
+        return daxFile;
+    }
+
+
+    private static String getWorkflowName(java.io.File daxFile) {
+        return daxFile.getName().substring(0, daxFile.getName().lastIndexOf("."));
+    }
+
+
+    /**
+     * the length of a job from its DAX runtime, at least 100 unless the runtime is missing
+     *
+     * @param runtime      NaN if missing
+     * @param lengthFactor the length factor of the simulation
+     */
+    static long getLength(double runtime, double lengthFactor) {
+        long length = 0;
+        if (!Double.isNaN(runtime)) {
+            length = (long) (lengthFactor * runtime);
+            if (length < 100) {
+                length = 100;
+            }
+        }
+        return length;
+    }
+
+
+    /**
+     * The jobs, files and edges read from a DAX file, kept in growable primitive arrays so that reading needs no ids and
+     * boxes no value. {@link #build()} creates the objects in the order they were read.
+     */
+    private static final class DaxGraph {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final String workflowName;
+
+        private final List<String> jobNameList = new ArrayList<>();
+
+        // the runtime of each job, NaN if missing, the length factor is applied when the jobs are built
+        private double[] runtimes = new double[INITIAL_CAPACITY];
+
+        // the files of job i are from fileOffsets[i] to fileOffsets[i + 1], in the order of the uses nodes
+        private int[] fileOffsets = new int[INITIAL_CAPACITY + 1];
+
+        private final List<String> fileNameList = new ArrayList<>();
+
+        private double[] fileSizes = new double[INITIAL_CAPACITY];
+
+        // the files that are outputs of their job, the others are inputs
+        private final BitSet outputFiles = new BitSet();
+
+        // the latest job read for each id, in the order the ids first appeared
+        private final Map<String, Integer> nodeMap = new LinkedHashMap<>();
+
+        // the parent and the child of each edge, as consecutive pairs
+        private int[] edges = new int[2 * INITIAL_CAPACITY];
+
+        private int edgeNum;
+
+        private DaxGraph(String workflowName) {
+            this.workflowName = workflowName;
+        }
+
+        /**
+         * add a job from the attributes of a job node
+         *
+         * @return the index of the job
+         */
+        private int addJob(String id, String runtime) {
+            double jobRuntime = Double.NaN;
+            if (runtime != null) {
+                jobRuntime = Double.parseDouble(runtime);
+            } else {
+                log.error("Cannot find runtime for " + id);
+            }
+            int job = jobNameList.size();
+            if (job == runtimes.length) {
+                runtimes = Arrays.copyOf(runtimes, 2 * job);
+                fileOffsets = Arrays.copyOf(fileOffsets, 2 * job + 1);
+            }
+            jobNameList.add(workflowName + "_" + id);
+            runtimes[job] = jobRuntime;
+            fileOffsets[job + 1] = fileOffsets[job];
+            nodeMap.put(id, job);
+            return job;
+        }
+
+        /**
+         * add a file from the attributes of a uses node, to the job read last
+         *
+         * @param name DAX version 3.3 file name
+         * @param file DAX version 3.0 file name
+         */
+        private void addFile(int job, String name, String file, String link, String fileSize) {
+            if (job != jobNameList.size() - 1) {
+                throw new IllegalStateException(String.format("File of job %d added after job %d", job, jobNameList.size() - 1));
+            }
+            String fileName = name; // DAX version 3.3
+            if (fileName == null) {
+                fileName = file; // DAX version 3.0
+            }
+            if (fileName == null) {
+                log.error("File name not found");
+            }
+            double size = 0.0;
+            if (fileSize != null) {
+                size = Double.parseDouble(fileSize);
+                if (size < 100) {
+                    size = 100;
+                }
+            } else {
+                log.warn("File size not found for " + fileName);
+            }
+            switch (link) {
+                case "input":
+                case "output":
+                    int fileIndex = fileNameList.size();
+                    if (fileIndex == fileSizes.length) {
+                        fileSizes = Arrays.copyOf(fileSizes, 2 * fileIndex);
+                    }
+                    fileNameList.add(fileName);
+                    fileSizes[fileIndex] = size;
+                    outputFiles.set(fileIndex, link.equals("output"));
+                    fileOffsets[job + 1]++;
+                    break;
+                default:
+                    log.warn("Cannot identify file type");
                     break;
             }
         }
 
-        setDepth(nodeMap);
-        List<Job> jobList = new ArrayList<>(nodeMap.values());
-        identifyLocalInputFile(jobList);
-        return new Workflow(workflowName, jobList);
+        /**
+         * link a parent and a child, unknown jobs are ignored
+         */
+        private void addEdge(String childName, String parentName) {
+            Integer child = nodeMap.get(childName);
+            Integer parent = nodeMap.get(parentName);
+            if (child != null && parent != null) {
+                if (2 * edgeNum == edges.length) {
+                    edges = Arrays.copyOf(edges, 2 * edges.length);
+                }
+                edges[2 * edgeNum] = parent;
+                edges[2 * edgeNum + 1] = child;
+                edgeNum++;
+            }
+        }
+
+        /**
+         * create the jobs, files and workflow, with the length factor of the current simulation
+         */
+        private Workflow build() {
+            double lengthFactor = ExperimentConfig.current().getLengthFactor();
+            List<Job> allJobList = new ArrayList<>(jobNameList.size());
+            for (int i = 0; i < jobNameList.size(); i++) {
+                Job job = new Job(jobNameList.get(i), getLength(runtimes[i], lengthFactor));
+                job.setRuntime(runtimes[i]);
+                for (int f = fileOffsets[i]; f < fileOffsets[i + 1]; f++) {
+                    File file = new File(fileNameList.get(f), fileSizes[f]);
+                    if (outputFiles.get(f)) {
+                        job.getOutputFileList().add(file);
+                    } else {
+                        job.getPredInputFileList().add(file);
+                    }
+                }
+                allJobList.add(job);
+            }
+            for (int e = 0; e < edgeNum; e++) {
+                Job parentJob = allJobList.get(edges[2 * e]);
+                Job childJob = allJobList.get(edges[2 * e + 1]);
+                parentJob.addChild(childJob);
+                childJob.addParent(parentJob);
+            }
+            List<Job> jobList = nodeMap.values().stream().map(allJobList::get).collect(Collectors.toList());
+            setDepth(jobList);
+            identifyLocalInputFile(jobList);
+            calculateParentDataSize(jobList);
+            return new Workflow(workflowName, jobList);
+        }
     }
 
 
-    private static void setDepth(Map<String, Job> nodeMap) {
+    /**
+     * Set the depth of each job to the length of the longest path from a root job, in a single pass over the jobs in
+     * topological order
+     *
+     * @param jobList
+     */
+    private static void setDepth(List<Job> jobList) {
+        // the number of parents of each job whose depth is not yet final
+        Map<Job, Integer> pendingParentNumMap = new IdentityHashMap<>();
+        for (Job job : jobList) {
+            pendingParentNumMap.put(job, 0);
+        }
         // If a job has no parent, then it is root job.
-        List<Job> rootList = new ArrayList<>();
-        for (Job job : nodeMap.values()) {
+        Deque<Job> readyJobs = new ArrayDeque<>();
+        for (Job job : jobList) {
             job.setDepth(0);
-            if (job.getParentList().isEmpty()) {
-                rootList.add(job);
+            int pendingParentNum = (int) job.getParentList().stream().filter(pendingParentNumMap::containsKey).count();
+            pendingParentNumMap.put(job, pendingParentNum);
+            if (pendingParentNum == 0) {
+                readyJobs.add(job);
             }
         }
-
-        for (Job job : rootList) {
-            setDepth(job, 0);
+        int visitedNum = 0;
+        while (!readyJobs.isEmpty()) {
+            Job job = readyJobs.poll();
+            visitedNum++;
+            for (Job child : job.getChildList()) {
+                Integer pendingParentNum = pendingParentNumMap.get(child);
+                if (pendingParentNum == null) {
+                    continue;
+                }
+                child.setDepth(Math.max(child.getDepth(), job.getDepth() + 1));
+                pendingParentNumMap.put(child, pendingParentNum - 1);
+                if (pendingParentNum == 1) {
+                    readyJobs.add(child);
+                }
+            }
+        }
+        if (visitedNum < jobList.size()) {
+            throw new IllegalStateException(String.format("Workflow contains a cycle: %s", findCycle(pendingParentNumMap)));
         }
     }
 
 
     /**
-     * Set the depth of each job
+     * find a cycle among the jobs that were never ready, every such job has a parent that was never ready either
      *
-     * @param job
-     * @param depth
+     * @return the names of the jobs on the cycle, in parent → child order
      */
-    private static void setDepth(Job job, int depth) {
-        if (job.getDepth() < depth) {
-            job.setDepth(depth);
+    private static String findCycle(Map<Job, Integer> pendingParentNumMap) {
+        Job job = pendingParentNumMap.entrySet().stream().filter(entry -> entry.getValue() > 0).findFirst().orElseThrow().getKey();
+        // walk up the blocked parents until a job repeats
+        Map<Job, Integer> positionMap = new IdentityHashMap<>();
+        List<Job> path = new ArrayList<>();
+        while (!positionMap.containsKey(job)) {
+            positionMap.put(job, path.size());
+            path.add(job);
+            job = job.getParentList().stream().filter(parent -> pendingParentNumMap.getOrDefault(parent, 0) > 0).findFirst().orElseThrow();
         }
-        for (Job child : job.getChildList()) {
-            setDepth(child, job.getDepth() + 1);
+        List<Job> cycle = new ArrayList<>(path.subList(positionMap.get(job), path.size()));
+        Collections.reverse(cycle);
+        cycle.add(cycle.get(0));
+        return cycle.stream().map(Job::getName).collect(Collectors.joining(" -> "));
+    }
+
+
+    /**
+     * calculate the size of the data on each parent → child edge once, so that transfer times are O(1) lookups
+     *
+     * @param jobList
+     */
+    private static void calculateParentDataSize(List<Job> jobList) {
+        for (Job job : jobList) {
+            double[] parentDataSizes = new double[job.getParentList().size()];
+            for (int i = 0; i < parentDataSizes.length; i++) {
+                Set<String> parentOutputFiles = job.getParentList().get(i).getOutputFileList().stream().map(File::getName).collect(Collectors.toSet());
+                parentDataSizes[i] = job.getPredInputFileList().stream().filter(file -> parentOutputFiles.contains(file.getName())).mapToDouble(File::getSize).sum();
+            }
+            job.setParentDataSizes(parentDataSizes);
         }
     }
 
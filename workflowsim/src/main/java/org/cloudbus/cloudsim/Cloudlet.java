@@ -9,6 +9,7 @@ package org.cloudbus.cloudsim;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.LinkedList;
 import java.util.List;
@@ -22,7 +23,7 @@ import java.util.List;
  * @author Remo Andreoli
  * @since CloudSim Toolkit 1.0
  */
-public class Cloudlet {
+public class Cloudlet implements Serializable {
     public enum CloudletStatus {
         /** The Cloudlet has been created and added to the CloudletList object. */
         CREATED,
@@ -447,7 +448,7 @@ public class Cloudlet {
      * CloudResources. Each time a cloudlet is run on a given VM, the cloudlet's
      * execution history on each VM is registered at {@link Cloudlet#resList}
      */
-    public static class Resource {
+    public static class Resource implements Serializable {
 
         /** Cloudlet's submission (arrival) time to a CloudResource. */
         public double arrivalTime = 0.0;
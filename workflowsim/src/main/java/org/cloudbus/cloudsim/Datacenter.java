@@ -406,11 +406,7 @@ public class Datacenter extends SimEntity {
 		}
 
 		if (ack) {
-			int[] data = new int[3];
-			data[0] = getId();
-			data[1] = guest.getId();
-			data[2] = result ? CloudSimTags.TRUE : CloudSimTags.FALSE;
-			send(guest.getUserId(), CloudSim.getMinTimeBetweenEvents(), CloudActionTags.VM_CREATE_ACK, data);
+			sendAck(guest.getUserId(), CloudSim.getMinTimeBetweenEvents(), CloudActionTags.VM_CREATE_ACK, guest.getId(), result);
 		}
 
 		if (result) {
@@ -488,11 +484,7 @@ public class Datacenter extends SimEntity {
 		}
 
 		if (ack) {
-			int[] data = new int[3];
-			data[0] = getId();
-			data[1] = vm.getId();
-			data[2] = CloudSimTags.TRUE;
-			sendNow(ev.getSourceId(), CloudActionTags.VM_CREATE_ACK, data);
+			sendAckNow(ev.getSourceId(), CloudActionTags.VM_CREATE_ACK, vm.getId(), true);
 		}
 
 		Log.formatLine(
@@ -583,11 +575,7 @@ public class Datacenter extends SimEntity {
 		} else {
 			// has the cloudlet already finished?
 			if (cl.getStatus() == Cloudlet.CloudletStatus.SUCCESS) {// if yes, send it back to user
-				int[] data = new int[3];
-				data[0] = getId();
-				data[1] = cloudletId;
-				data[2] = 0;
-				sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, data);
+				sendAckNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, cloudletId, false);
 				sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_RETURN, cl);
 			}
 
@@ -612,15 +600,7 @@ public class Datacenter extends SimEntity {
 		}
 
 		if (tag == CloudActionTags.CLOUDLET_MOVE_ACK) {// send ACK if requested
-			int[] data = new int[3];
-			data[0] = getId();
-			data[1] = cloudletId;
-			if (failed) {
-				data[2] = 0;
-			} else {
-				data[2] = 1;
-			}
-			sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, data);
+			sendAckNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, cloudletId, !failed);
 		}
 	}
 
@@ -655,12 +635,7 @@ public class Datacenter extends SimEntity {
 				// Hence, this might cause CloudSim to be hanged since waiting
 				// for this Cloudlet back.
 				if (ack) {
-					int[] data = new int[3];
-					data[0] = getId();
-					data[1] = cl.getCloudletId();
-					data[2] = CloudSimTags.FALSE;
-
-					sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, data);
+					sendAckNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, cl.getCloudletId(), false);
 				}
 
 				sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_RETURN, cl);
@@ -694,12 +669,7 @@ public class Datacenter extends SimEntity {
 			}*/
 
 			if (ack) {
-				int[] data = new int[3];
-				data[0] = getId();
-				data[1] = cl.getCloudletId();
-				data[2] = CloudSimTags.TRUE;
-
-				sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, data);
+				sendAckNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, cl.getCloudletId(), true);
 			}
 		} catch (ClassCastException c) {
 			Log.printlnConcat(getName(), ".processCloudletSubmit(): ", "ClassCastException error.");
@@ -217,14 +217,13 @@ public class DatacenterBroker extends SimEntity {
 	 * @post $none
 	 */
 	protected void processVmCreateAck(SimEvent ev) {
-		int[] data = (int[]) ev.getData();
-		int datacenterId = data[0];
-		int vmId = data[1];
-		int result = data[2];
+		AckPayload ack = (AckPayload) ev.getData();
+		int datacenterId = ack.getEntityId();
+		int vmId = ack.getObjectId();
 
 		GuestEntity guest = VmList.getById(getGuestList(), vmId);
 
-		if (result == CloudSimTags.TRUE) {
+		if (ack.isSuccess()) {
 			getVmsToDatacentersMap().put(vmId, datacenterId);
 			getGuestsCreatedList().add(guest);
 			Log.printlnConcat(CloudSim.clock(), ": ", getName(), ": ", guest.getClassName(), " #", vmId,
@@ -13,6 +13,7 @@ import org.cloudbus.cloudsim.core.HostEntity;
 import org.cloudbus.cloudsim.lists.HostList;
 import org.cloudbus.cloudsim.lists.PeList;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -31,7 +32,7 @@ import java.util.List;
  * giving the idea that the class can be used to describe characteristics of other resources.
  * However, the class was found being used only for datacenters.
  */
-public class DatacenterCharacteristics {
+public class DatacenterCharacteristics implements Serializable {
 
 	/** The datacenter id -- setup when datacenter is created. */
 	private int id;
@@ -164,8 +164,7 @@ public class DatacenterBrokerEX extends DatacenterBroker {
 
         CloudSimTags tag = ev.getTag();
         if (tag == CloudActionTags.VM_CREATE_ACK) {
-            int[] data = (int[]) ev.getData();
-            int vmId = data[1];
+            int vmId = ((AckPayload) ev.getData()).getObjectId();
 
             GuestEntity vm = VmList.getById(getGuestList(), vmId);
             if (vm.isBeingInstantiated()) {
@@ -59,11 +59,7 @@ public class DatacenterEX extends Datacenter {
         boolean result = getVmAllocationPolicy().allocateHostForGuest(vm);
         double delay = delayDistribution.getDelay(vm);
         if (ack) {
-            int[] data = new int[3];
-            data[0] = getId();
-            data[1] = vm.getId();
-            data[2] = result ? CloudSimTags.TRUE : CloudSimTags.FALSE;
-            send(vm.getUserId(), delay, CloudActionTags.VM_CREATE_ACK, data);
+            sendAck(vm.getUserId(), delay, CloudActionTags.VM_CREATE_ACK, vm.getId(), result);
         }
 
         if (result) {
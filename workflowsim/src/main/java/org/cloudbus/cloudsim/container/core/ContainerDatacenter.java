@@ -325,11 +325,7 @@ public class ContainerDatacenter extends Datacenter {
         } else {
             // has the cloudlet already finished?
             if (cl.getStatus() == Cloudlet.CloudletStatus.SUCCESS) {// if yes, send it back to user
-                int[] data = new int[3];
-                data[0] = getId();
-                data[1] = cloudletId;
-                data[2] = 0;
-                sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, data);
+                sendAckNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, cloudletId, false);
                 sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_RETURN, cl);
             }
 
@@ -354,15 +350,7 @@ public class ContainerDatacenter extends Datacenter {
         }
 
         if (tag == CloudActionTags.CLOUDLET_MOVE_ACK) {// send ACK if requested
-            int[] data = new int[3];
-            data[0] = getId();
-            data[1] = cloudletId;
-            if (failed) {
-                data[2] = 0;
-            } else {
-                data[2] = 1;
-            }
-            sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, data);
+            sendAckNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, cloudletId, !failed);
         }
     }
 
@@ -394,12 +382,7 @@ public class ContainerDatacenter extends Datacenter {
                 // Hence, this might cause CloudSim to be hanged since waiting
                 // for this Cloudlet back.
                 if (ack) {
-                    int[] data = new int[3];
-                    data[0] = getId();
-                    data[1] = cl.getCloudletId();
-                    data[2] = CloudSimTags.FALSE;
-
-                    sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, data);
+                    sendAckNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, cl.getCloudletId(), false);
                 }
 
                 sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_RETURN, cl);
@@ -430,12 +413,7 @@ public class ContainerDatacenter extends Datacenter {
             }
 
             if (ack) {
-                int[] data = new int[3];
-                data[0] = getId();
-                data[1] = cl.getCloudletId();
-                data[2] = CloudSimTags.TRUE;
-
-                sendNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, data);
+                sendAckNow(cl.getUserId(), CloudActionTags.CLOUDLET_SUBMIT_ACK, cl.getCloudletId(), true);
             }
         } catch (ClassCastException c) {
             Log.println(String.format("%s.processCloudletSubmit(): ClassCastException error.", getName()));
@@ -183,12 +183,11 @@ public class ContainerDatacenterBroker extends DatacenterBroker {
      * @post $none
      */
     protected void processVmCreateAck(SimEvent ev) {
-        int[] data = (int[]) ev.getData();
-        int datacenterId = data[0];
-        int vmId = data[1];
-        int result = data[2];
+        AckPayload ack = (AckPayload) ev.getData();
+        int datacenterId = ack.getEntityId();
+        int vmId = ack.getObjectId();
 
-        if (result == CloudSimTags.TRUE) {
+        if (ack.isSuccess()) {
             GuestEntity guest = VmList.getById(getGuestList(), vmId);
 
             getVmsToDatacentersMap().put(vmId, datacenterId);
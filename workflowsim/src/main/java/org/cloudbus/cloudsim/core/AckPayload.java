@@ -0,0 +1,68 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+
+/**
+ * The data of an acknowledgement event, such as {@link CloudActionTags#VM_CREATE_ACK} or
+ * {@link CloudActionTags#CLOUDLET_SUBMIT_ACK}: the entity that processed a request, the id of the object of the
+ * request and whether it succeeded. It replaces the {@code int[3]} array of those events.
+ * <p>
+ * The payload belongs to the event carrying it and is reused when the event is recycled, so it must not be kept
+ * after the event has been processed, unless the event is retained with {@link SimEvent#retain()}.
+ *
+ * @see SimEntity#sendAck(int, double, CloudSimTags, int, boolean)
+ */
+public final class AckPayload implements Serializable {
+
+	/** The id of the entity that processed the request, e.g. a datacenter. */
+	private int entityId;
+
+	/** The id of the object of the request, e.g. a VM or a cloudlet. */
+	private int objectId;
+
+	/** Whether the request succeeded. */
+	private boolean success;
+
+	AckPayload() {
+	}
+
+	void set(int entityId, int objectId, boolean success) {
+		this.entityId = entityId;
+		this.objectId = objectId;
+		this.success = success;
+	}
+
+	/**
+	 * @return the id of the entity that processed the request
+	 */
+	public int getEntityId() {
+		return entityId;
+	}
+
+	/**
+	 * @return the id of the object of the request
+	 */
+	public int getObjectId() {
+		return objectId;
+	}
+
+	/**
+	 * @return true if the request succeeded
+	 */
+	public boolean isSuccess() {
+		return success;
+	}
+
+	@Override
+	public String toString() {
+		return "Ack entity = " + entityId + " object = " + objectId + " success = " + success;
+	}
+}
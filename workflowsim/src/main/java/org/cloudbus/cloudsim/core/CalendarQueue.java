@@ -0,0 +1,306 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A calendar queue (R. Brown, 1988) of future events, with amortized O(1) insertion and removal of the first event.
+ * <p>
+ * Time is divided into days of a fixed width, and the days are mapped cyclically onto an array of buckets, so that a
+ * bucket holds the events of every n-th day. Removing the first event scans the buckets from the current day, and
+ * only falls back to a search of all the buckets when a whole year is empty. The number of buckets follows the
+ * number of events, and the day width is re-estimated from the spacing of the first events whenever the calendar is
+ * resized.
+ * <p>
+ * All the events of a day share a bucket, a linked list through {@link SimEvent#next} sorted by
+ * {@link SimEvent#compareTo(SimEvent)}, so events leave the calendar in the same order as from {@link EventQueue}.
+ *
+ * @see FutureEventList
+ */
+public class CalendarQueue implements FutureEventList, Serializable {
+
+	/** The minimum number of buckets. */
+	private static final int MIN_BUCKET_NUM = 2;
+
+	/** The number of first events sampled to estimate the day width. */
+	private static final int SAMPLE_NUM = 25;
+
+	/** A incremental number used for event attribute */
+	private long serial = 0;
+
+	/** The first events of the buckets, bucket i holds the events of the days d with d mod n = i. */
+	private transient SimEvent[] buckets;
+
+	/** The width of a day. */
+	private double width = 1.0;
+
+	/** The day being scanned, no event is scheduled before it. */
+	private long currentDay;
+
+	/** The number of events. */
+	private int size = 0;
+
+	public CalendarQueue() {
+		buckets = new SimEvent[MIN_BUCKET_NUM];
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		add(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		add(newEvent);
+	}
+
+	@Override
+	public SimEvent peek() {
+		int i = findFirstBucket();
+		return i < 0 ? null : buckets[i];
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (!CloudSim.running()) {
+			return null;
+		}
+		SimEvent event = remove();
+		if (size < buckets.length / 2 && buckets.length > MIN_BUCKET_NUM) {
+			resize(buckets.length / 2);
+		}
+		return event;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return new Iterator<>() {
+			private int bucket = -1;
+			// the last event returned, and the event before it in its bucket
+			private SimEvent current;
+			private SimEvent previous;
+			private SimEvent next;
+
+			@Override
+			public boolean hasNext() {
+				while (next == null) {
+					if (++bucket >= buckets.length) {
+						return false;
+					}
+					next = buckets[bucket];
+					current = null;
+					previous = null;
+				}
+				return true;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				if (current != null) {
+					previous = current;
+				}
+				current = next;
+				next = next.next;
+				return current;
+			}
+
+			@Override
+			public void remove() {
+				if (current == null) {
+					throw new IllegalStateException();
+				}
+				if (previous == null) {
+					buckets[bucket] = next;
+				} else {
+					previous.next = next;
+				}
+				current.next = null;
+				current = null;
+				size--;
+			}
+		};
+	}
+
+	/**
+	 * Adds an event that already has its serial.
+	 */
+	private void add(SimEvent event) {
+		insert(event);
+		if (size > 2 * buckets.length) {
+			resize(2 * buckets.length);
+		}
+	}
+
+	/**
+	 * Adds an event, without resizing.
+	 */
+	private void insert(SimEvent event) {
+		long day = getDay(event.eventTime());
+		if (size == 0 || day < currentDay) {
+			currentDay = day;
+		}
+		int i = getBucket(day);
+		SimEvent previous = null;
+		SimEvent next = buckets[i];
+		while (next != null && next.compareTo(event) < 0) {
+			previous = next;
+			next = next.next;
+		}
+		event.next = next;
+		if (previous == null) {
+			buckets[i] = event;
+		} else {
+			previous.next = event;
+		}
+		size++;
+	}
+
+	/**
+	 * Removes the first event, without resizing.
+	 */
+	private SimEvent remove() {
+		int i = findFirstBucket();
+		if (i < 0) {
+			return null;
+		}
+		SimEvent event = buckets[i];
+		buckets[i] = event.next;
+		event.next = null;
+		size--;
+		return event;
+	}
+
+	/**
+	 * Finds the bucket of the first event, moving the current day up to the day of that event.
+	 *
+	 * @return the bucket index, or -1 if there is no event
+	 */
+	private int findFirstBucket() {
+		if (size == 0) {
+			return -1;
+		}
+		for (int k = 0; k < buckets.length; k++, currentDay++) {
+			SimEvent first = buckets[getBucket(currentDay)];
+			if (first != null && getDay(first.eventTime()) <= currentDay) {
+				return getBucket(currentDay);
+			}
+		}
+		// a whole year without events, jump to the earliest event
+		int first = -1;
+		for (int i = 0; i < buckets.length; i++) {
+			if (buckets[i] != null && (first < 0 || buckets[i].compareTo(buckets[first]) < 0)) {
+				first = i;
+			}
+		}
+		currentDay = getDay(buckets[first].eventTime());
+		return first;
+	}
+
+	/**
+	 * Moves the events to a new number of buckets, with a day width estimated from the first events.
+	 */
+	private void resize(int bucketNum) {
+		width = estimateWidth();
+		SimEvent[] oldBuckets = buckets;
+		buckets = new SimEvent[bucketNum];
+		size = 0;
+		for (SimEvent event : oldBuckets) {
+			while (event != null) {
+				SimEvent next = event.next;
+				insert(event);
+				event = next;
+			}
+		}
+	}
+
+	/**
+	 * Estimates the day width as three times the average spacing of the first events, ignoring the spacings of more
+	 * than twice the average.
+	 */
+	private double estimateWidth() {
+		int sampleNum = Math.min(size, SAMPLE_NUM);
+		if (sampleNum < 2) {
+			return width;
+		}
+		List<SimEvent> samples = new ArrayList<>(sampleNum);
+		for (int i = 0; i < sampleNum; i++) {
+			samples.add(remove());
+		}
+		for (SimEvent sample : samples) {
+			insert(sample);
+		}
+		double total = samples.get(sampleNum - 1).eventTime() - samples.get(0).eventTime();
+		double average = total / (sampleNum - 1);
+		double sum = 0;
+		int num = 0;
+		for (int i = 1; i < sampleNum; i++) {
+			double spacing = samples.get(i).eventTime() - samples.get(i - 1).eventTime();
+			if (spacing <= 2 * average) {
+				sum += spacing;
+				num++;
+			}
+		}
+		double newWidth = 3 * sum / num;
+		// keep the width when the first events are all simultaneous
+		return newWidth > 0 && Double.isFinite(newWidth) ? newWidth : width;
+	}
+
+	/**
+	 * Writes the events one by one, as the links of the buckets are not serialised.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(buckets.length);
+		for (SimEvent event : buckets) {
+			for (; event != null; event = event.next) {
+				out.writeObject(event);
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		buckets = new SimEvent[in.readInt()];
+		int eventNum = size;
+		long day = currentDay;
+		size = 0;
+		for (int i = 0; i < eventNum; i++) {
+			insert((SimEvent) in.readObject());
+		}
+		currentDay = day;
+	}
+
+	private long getDay(double time) {
+		return (long) Math.floor(time / width);
+	}
+
+	private int getBucket(long day) {
+		return (int) Math.floorMod(day, (long) buckets.length);
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event for the dispatch of the events of a tick, all due at the same time, to the entities that
+ * process them in the next tick.
+ */
+@Name("cloudsim.DispatchBatch")
+@Label("Event Dispatch Batch")
+@Category({"CloudSim", "Event Loop"})
+@Description("The dispatch of the events due at the same simulation time")
+@StackTrace(false)
+class DispatchBatchEvent extends Event {
+
+	/** The name of the simulation, see {@link Simulation#setName(String)}. */
+	@Label("Simulation")
+	String simName;
+
+	/** The simulation time of the events. */
+	@Label("Simulation Time")
+	double simTime;
+
+	/** The number of events dispatched. */
+	@Label("Event Count")
+	int eventNum;
+
+	/** The number of entities with events to process after the dispatch. */
+	@Label("Runnable Entity Count")
+	int runnableEntityNum;
+
+	/** The ids of the entities with events to process after the dispatch. */
+	@Label("Runnable Entity Ids")
+	String entityIds;
+
+	/** The number of future events left after the dispatch. */
+	@Label("Queue Depth")
+	int queueDepth;
+}
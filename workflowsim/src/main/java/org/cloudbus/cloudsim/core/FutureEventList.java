@@ -0,0 +1,55 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * The future event list used by {@link CloudSim}. Implementations are selected when the simulation is initialised,
+ * see {@link CloudSim#init(int, java.util.Calendar, boolean, java.util.function.Supplier)}.
+ * <p>
+ * Events leave the list in the order defined by {@link SimEvent#compareTo(SimEvent)}: by time, then by the serial
+ * number assigned when the event was added, so that events scheduled for the same time are processed first in,
+ * first out. The {@link #iterator()} visits the events in no particular order and supports removal.
+ *
+ * @see EventQueue
+ * @see CalendarQueue
+ */
+public interface FutureEventList extends Iterable<SimEvent> {
+
+	/**
+	 * Adds a new event to the list, after the events already scheduled for the same time.
+	 *
+	 * @param newEvent The event to be put in the list.
+	 */
+	void addEvent(SimEvent newEvent);
+
+	/**
+	 * Adds a new event to the list, before the events already scheduled for the same time.
+	 *
+	 * @param newEvent The event to be put in the list.
+	 */
+	void addEventFirst(SimEvent newEvent);
+
+	/**
+	 * Gets the first event, without removing it.
+	 *
+	 * @return the first event, or null if the list is empty
+	 */
+	SimEvent peek();
+
+	/**
+	 * Removes the first event.
+	 *
+	 * @return the first event, or null if the list is empty or the simulation is not running
+	 */
+	SimEvent poll();
+
+	int size();
+
+	boolean isEmpty();
+}
@@ -0,0 +1,279 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A {@link FutureEventList} that indexes its events by source entity and tag, so that cancelling the events of an
+ * entity only visits the events that entity scheduled, and with a {@link PredicateType} only those with the given
+ * tags.
+ * <p>
+ * Cancellation is lazy: a cancelled event is marked with {@link SimEvent#isCancelled()} and stays in the underlying
+ * list until it reaches the head, where it is dropped. Cancelled events are not counted by {@link #size()} and are
+ * never returned by {@link #peek()}, {@link #poll()} or the iterator.
+ */
+class IndexedEventList implements FutureEventList, Serializable {
+
+	/** The list holding the events, including the cancelled ones. */
+	private final FutureEventList events;
+
+	/** The pending events by tag, at the position of their source entity id. */
+	private transient List<Map<CloudSimTags, TagEvents>> index = new ArrayList<>();
+
+	/** The number of cancelled events still in the list. */
+	private int cancelledNum = 0;
+
+	IndexedEventList(FutureEventList events) {
+		this.events = events;
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		events.addEvent(newEvent);
+		addToIndex(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		events.addEventFirst(newEvent);
+		addToIndex(newEvent);
+	}
+
+	@Override
+	public SimEvent peek() {
+		SimEvent first = events.peek();
+		while (first != null && first.isCancelled()) {
+			if (events.poll() == null) {
+				// the simulation is not running, so the cancelled events cannot be dropped
+				return findFirst();
+			}
+			cancelledNum--;
+			first = events.peek();
+		}
+		return first;
+	}
+
+	@Override
+	public SimEvent poll() {
+		SimEvent first = events.poll();
+		while (first != null && first.isCancelled()) {
+			cancelledNum--;
+			first = events.poll();
+		}
+		if (first != null) {
+			removeFromIndex(first);
+		}
+		return first;
+	}
+
+	@Override
+	public int size() {
+		return events.size() - cancelledNum;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		Iterator<SimEvent> iterator = events.iterator();
+		return new Iterator<>() {
+			private SimEvent next;
+			private SimEvent current;
+
+			@Override
+			public boolean hasNext() {
+				while (next == null && iterator.hasNext()) {
+					SimEvent event = iterator.next();
+					if (!event.isCancelled()) {
+						next = event;
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				current = next;
+				next = null;
+				return current;
+			}
+
+			@Override
+			public void remove() {
+				// the underlying iterator may have moved past the current event, so cancel it instead
+				if (current == null) {
+					throw new IllegalStateException();
+				}
+				cancel(current);
+				current = null;
+			}
+		};
+	}
+
+	/**
+	 * Cancels the earliest pending event scheduled by an entity that matches a predicate.
+	 *
+	 * @param srcId the entity source id
+	 * @param p the predicate
+	 * @return the cancelled event, or null if none matches
+	 */
+	SimEvent cancel(int srcId, Predicate p) {
+		SimEvent first = null;
+		for (TagEvents candidates : getCandidates(srcId, p)) {
+			for (SimEvent event = candidates.head; event != null; event = event.indexNext) {
+				if (p.match(event) && (first == null || event.compareTo(first) < 0)) {
+					first = event;
+				}
+			}
+		}
+		if (first != null) {
+			cancel(first);
+		}
+		return first;
+	}
+
+	/**
+	 * Cancels all the pending events scheduled by an entity that match a predicate.
+	 *
+	 * @param srcId the entity source id
+	 * @param p the predicate
+	 * @return true if at least one event has been cancelled
+	 */
+	boolean cancelAll(int srcId, Predicate p) {
+		List<SimEvent> matches = new ArrayList<>();
+		for (TagEvents candidates : getCandidates(srcId, p)) {
+			for (SimEvent event = candidates.head; event != null; event = event.indexNext) {
+				if (p.match(event)) {
+					matches.add(event);
+				}
+			}
+		}
+		for (SimEvent event : matches) {
+			cancel(event);
+		}
+		return !matches.isEmpty();
+	}
+
+	private void cancel(SimEvent event) {
+		event.setCancelled(true);
+		cancelledNum++;
+		removeFromIndex(event);
+	}
+
+	/**
+	 * @return the lists of events that may match the predicate, those of the entity with the tags of a
+	 * {@link PredicateType}, or else all the events of the entity
+	 */
+	private List<TagEvents> getCandidates(int srcId, Predicate p) {
+		Map<CloudSimTags, TagEvents> tagMap = getTagMap(srcId);
+		if (tagMap == null) {
+			return List.of();
+		}
+		if (p instanceof PredicateType predicateType) {
+			List<TagEvents> candidates = new ArrayList<>();
+			for (CloudSimTags tag : predicateType.getTags()) {
+				TagEvents tagEvents = tagMap.get(tag);
+				if (tagEvents != null) {
+					candidates.add(tagEvents);
+				}
+			}
+			return candidates;
+		}
+		return new ArrayList<>(tagMap.values());
+	}
+
+	private Map<CloudSimTags, TagEvents> getTagMap(int srcId) {
+		return srcId >= 0 && srcId < index.size() ? index.get(srcId) : null;
+	}
+
+	private void addToIndex(SimEvent event) {
+		int srcId = event.getSourceId();
+		if (srcId < 0) {
+			return;
+		}
+		while (index.size() <= srcId) {
+			index.add(new HashMap<>());
+		}
+		// the lists are kept when they empty, so that indexing an event allocates nothing
+		TagEvents tagEvents = index.get(srcId).computeIfAbsent(event.getTag(), tag -> new TagEvents());
+		event.indexPrev = null;
+		event.indexNext = tagEvents.head;
+		if (tagEvents.head != null) {
+			tagEvents.head.indexPrev = event;
+		}
+		tagEvents.head = event;
+	}
+
+	private void removeFromIndex(SimEvent event) {
+		Map<CloudSimTags, TagEvents> tagMap = getTagMap(event.getSourceId());
+		if (tagMap == null) {
+			return;
+		}
+		TagEvents tagEvents = tagMap.get(event.getTag());
+		if (tagEvents == null || event.indexPrev == null && tagEvents.head != event) {
+			// not indexed
+			return;
+		}
+		if (event.indexPrev == null) {
+			tagEvents.head = event.indexNext;
+		} else {
+			event.indexPrev.indexNext = event.indexNext;
+		}
+		if (event.indexNext != null) {
+			event.indexNext.indexPrev = event.indexPrev;
+		}
+		event.indexPrev = null;
+		event.indexNext = null;
+	}
+
+	/**
+	 * Rebuilds the index from the events, the links of the index are not serialised so that long lists of events do
+	 * not deepen the recursion of the serialisation.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		index = new ArrayList<>();
+		for (SimEvent event : this) {
+			addToIndex(event);
+		}
+	}
+
+	/**
+	 * @return the earliest event that is not cancelled, found by a scan
+	 */
+	private SimEvent findFirst() {
+		SimEvent first = null;
+		for (SimEvent event : this) {
+			if (first == null || event.compareTo(first) < 0) {
+				first = event;
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * The pending events of an entity with a tag, a doubly linked list through {@link SimEvent#indexNext}.
+	 */
+	private static class TagEvents {
+		private SimEvent head;
+	}
+}
@@ -12,6 +12,8 @@ import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.NetworkTopology;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
 
+import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.Iterator;
 
 /**
@@ -31,7 +33,7 @@ import java.util.Iterator;
  * @author Remo Andreoli
  * @since CloudSim Toolkit 1.0
  */
-public abstract class SimEntity implements Cloneable {
+public abstract class SimEntity implements Cloneable, Serializable {
 	/** Entity states */
 	public enum EntityStatus {
 		RUNNABLE,
@@ -45,6 +47,12 @@ public abstract class SimEntity implements Cloneable {
 	private EntityStatus state;
 	protected EventQueue incomingEvents;
 
+	/** The simulation the entity belongs to. */
+	private Simulation simulation;
+
+	/** The events delivered to a direct-dispatch entity, in timestamp/serial order. */
+	private ArrayDeque<SimEvent> dispatchedEvents;
+
 	/**
 	 * Creates a new entity.
 	 *
@@ -59,7 +67,8 @@ public abstract class SimEntity implements Cloneable {
 		state = EntityStatus.RUNNABLE;
 		incomingEvents = new EventQueue();
 
-		CloudSim.addEntity(this);
+		simulation = Simulation.current();
+		simulation.addEntity(this);
 	}
 
 	/**
@@ -80,10 +89,62 @@ public abstract class SimEntity implements Cloneable {
 		return id;
 	}
 
+	/**
+	 * Gets the simulation the entity belongs to, the current simulation of the thread that created it.
+	 *
+	 * @return the simulation
+	 */
+	public Simulation getSimulation() {
+		return simulation;
+	}
+
 	public EventQueue getIncomingEvents() {
 		return incomingEvents;
 	}
 
+	/**
+	 * Checks if the entity uses direct dispatch. The events of such an entity skip the incoming event queue: they are
+	 * appended to a FIFO in the order they leave the future event queue, which is already timestamp/serial order, and
+	 * passed to {@link #processEvent(SimEvent)} from there. This saves a heap insertion and removal per event.
+	 * <p>
+	 * Only entities that never wait for, pause, select or count deferred events may use it, calling these methods
+	 * from a direct-dispatch entity throws an {@link IllegalStateException}.
+	 *
+	 * @return true if the entity uses direct dispatch, false by default
+	 */
+	protected boolean isDirectDispatch() {
+		return false;
+	}
+
+	/**
+	 * Delivers an event that is due to the entity.
+	 *
+	 * @param ev the event
+	 */
+	void deliverEvent(SimEvent ev) {
+		if (isDirectDispatch()) {
+			if (dispatchedEvents == null) {
+				dispatchedEvents = new ArrayDeque<>();
+			}
+			dispatchedEvents.add(ev);
+		} else {
+			incomingEvents.add(ev);
+		}
+	}
+
+	/**
+	 * @return true if events have been delivered to the entity and not processed yet
+	 */
+	boolean hasIncomingEvents() {
+		return dispatchedEvents != null && !dispatchedEvents.isEmpty() || incomingEvents != null && !incomingEvents.isEmpty();
+	}
+
+	private void checkDeferredQueue() {
+		if (isDirectDispatch()) {
+			throw new IllegalStateException(String.format("Entity %s uses direct dispatch and has no deferred queue.", name));
+		}
+	}
+
 	/** Handle incoming event functions */
 	/**
 	 * Checks if events for a specific entity are present in the deferred event queue.
@@ -92,6 +153,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the int
 	 */
 	public int waiting(Predicate p) {
+		checkDeferredQueue();
 		int count = 0;
 		for (SimEvent event : incomingEvents) {
 			if ((event.getDestinationId() == id) && (p.match(event))) {
@@ -108,7 +170,8 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the sim event
 	 */
 	public SimEvent selectEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		checkDeferredQueue();
+		if (!simulation.running()) {
 			return null;
 		}
 
@@ -131,6 +194,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the sim event
 	 */
 	public SimEvent findFirstDeferred(Predicate p) {
+		checkDeferredQueue();
 		SimEvent ev;
 		for (SimEvent simEvent : incomingEvents) {
 			ev = simEvent;
@@ -151,10 +215,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void schedule(int dstId, double delay, CloudSimTags tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.send(id, dstId, delay, tag, data);
+		simulation.send(id, dstId, delay, tag, data);
 	}
 
 	/**
@@ -245,10 +309,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirst(int dstId, double delay, CloudSimTags tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.sendFirst(id, dstId, delay, tag, data);
+		simulation.sendFirst(id, dstId, delay, tag, data);
 	}
 
 	/**
@@ -341,10 +405,11 @@ public abstract class SimEntity implements Cloneable {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Negative delay supplied.");
 		}
-		if (!CloudSim.running()) {
+		checkDeferredQueue();
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.pause(id, delay);
+		simulation.pause(id, delay);
 	}
 
 	/**
@@ -375,11 +440,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The number of events cancelled (0 or 1)
 	 */
 	public SimEvent cancelEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return null;
 		}
 
-		return CloudSim.cancel(id, p);
+		return simulation.cancel(id, p);
 	}
 
 	/**
@@ -390,7 +455,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent getNextEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return null;
 		}
 		return selectEvent(p);
@@ -403,11 +468,12 @@ public abstract class SimEntity implements Cloneable {
 	 * @param p The predicate to match
 	 */
 	public void waitForEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		checkDeferredQueue();
+		if (!simulation.running()) {
 			return;
 		}
 
-		CloudSim.wait(id, p);
+		simulation.wait(id, p);
 		state = EntityStatus.WAITING;
 	}
 
@@ -423,6 +489,8 @@ public abstract class SimEntity implements Cloneable {
 	 * Processes events or services that are available for the entity.
 	 * This method is invoked by the {@link CloudSim} class whenever there is an event in the
 	 * deferred queue, which needs to be processed by the entity.
+	 * The event is recycled when this method returns, an entity that keeps it must call
+	 * {@link SimEvent#retain()}.
 	 *
 	 * @param ev information about the event just happened
 	 */
@@ -447,10 +515,16 @@ public abstract class SimEntity implements Cloneable {
 	 * @see #processEvent(SimEvent)
 	 */
 	public void run() {
+		if (isDirectDispatch()) {
+			runDispatchedEvents();
+			return;
+		}
+		SimulationProfiler profiler = simulation.getProfiler();
 		SimEvent ev =  incomingEvents.poll();
 
 		while (ev != null) {
-			processEvent(ev);
+			processEvent(ev, profiler);
+			simulation.releaseEvent(ev);
 			if (state != EntityStatus.RUNNABLE) {
 				break;
 			}
@@ -458,6 +532,42 @@ public abstract class SimEntity implements Cloneable {
 		}
 	}
 
+	/**
+	 * Processes the events delivered to a direct-dispatch entity.
+	 */
+	private void runDispatchedEvents() {
+		// like the incoming event queue, nothing is processed once the simulation has stopped
+		if (dispatchedEvents == null || !simulation.running()) {
+			return;
+		}
+		SimulationProfiler profiler = simulation.getProfiler();
+		SimEvent ev = dispatchedEvents.poll();
+		while (ev != null) {
+			processEvent(ev, profiler);
+			simulation.releaseEvent(ev);
+			if (state != EntityStatus.RUNNABLE) {
+				break;
+			}
+			ev = dispatchedEvents.poll();
+		}
+	}
+
+	/**
+	 * Processes an event, timed by the profiler of the simulation if it has one.
+	 *
+	 * @param ev the event
+	 * @param profiler the profiler, or null
+	 */
+	private void processEvent(SimEvent ev, SimulationProfiler profiler) {
+		if (profiler == null) {
+			processEvent(ev);
+			return;
+		}
+		long start = System.nanoTime();
+		processEvent(ev);
+		profiler.eventProcessed(this, ev, System.nanoTime() - start);
+	}
+
 	/**
 	 * Gets a clone of the entity. This is used when independent replications have been specified as
 	 * an output analysis method. Clones or backups of the entities are made in the beginning of the
@@ -662,6 +772,57 @@ public abstract class SimEntity implements Cloneable {
 		send(dstName, 0, tag, null);
 	}
 
+	/**
+	 * Sends an acknowledgement to another entity by <tt>delaying</tt> the simulation time from the
+	 * current time. The destination receives an {@link AckPayload} with the id of this entity as its
+	 * data, which is carried by the event itself.
+	 *
+	 * @param dstId the id number of the destination entity
+	 * @param delay how long from the current simulation time the event should be sent. If delay is
+	 *            a negative number, then it will be changed to 0
+	 * @param tag an user-defined number representing the type of an event/message
+	 * @param objectId the id of the object of the acknowledged request
+	 * @param success whether the request succeeded
+	 * @pre dstId > 0
+	 * @pre delay >= 0.0
+	 * @post $none
+	 */
+	protected void sendAck(int dstId, double delay, CloudSimTags tag, int objectId, boolean success) {
+		if (dstId < 0) {
+			return;
+		}
+
+		// if delay is -ve, then it doesn't make sense. So resets to 0.0
+		if (delay < 0) {
+			delay = 0;
+		}
+
+		if (Double.isInfinite(delay)) {
+			throw new IllegalArgumentException("The specified delay is infinite value");
+		}
+
+		if (dstId != id) {// only delay messages between different entities
+			delay += getNetworkDelay(id, dstId);
+		}
+
+		simulation.sendAck(id, dstId, delay, tag, objectId, success);
+	}
+
+	/**
+	 * Sends an acknowledgement to another entity.
+	 *
+	 * @param dstId the id number of the destination entity
+	 * @param tag an user-defined number representing the type of an event/message
+	 * @param objectId the id of the object of the acknowledged request
+	 * @param success whether the request succeeded
+	 * @pre dstId > 0
+	 * @post $none
+	 * @see #sendAck(int, double, CloudSimTags, int, boolean)
+	 */
+	protected void sendAckNow(int dstId, CloudSimTags tag, int objectId, boolean success) {
+		sendAck(dstId, 0, tag, objectId, success);
+	}
+
 	/**
 	 * Gets the network delay associated to the sent of a message from a given source to a given
 	 * destination.
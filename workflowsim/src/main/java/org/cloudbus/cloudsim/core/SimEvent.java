@@ -8,19 +8,21 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 /**
  * This class represents a simulation event which is passed between the entities in the simulation.
  *
  * @author Costas Simatos
  * @see SimEntity
  */
-public class SimEvent implements Cloneable, Comparable<SimEvent> {
+public class SimEvent implements Cloneable, Comparable<SimEvent>, Serializable {
 
 	/** Internal event type. **/
-	private final int etype;
+	private int etype;
 
 	/** The time that this event was scheduled, at which it should occur. **/
-	private final double time;
+	private double time;
 
 	/** Time that the event was removed from the queue to start service. **/
 	private double endWaitingTime;
@@ -32,7 +34,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	private int entDst;
 
 	/** The user defined type of the event. **/
-	private final CloudSimTags tag;
+	private CloudSimTags tag;
 
 	/**
          * Any data the event is carrying.
@@ -40,7 +42,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
          * But this modification would incur several changes in the simulator core
          * that has to be assessed first.
          **/
-	private final Object data;
+	private Object data;
 
         /**
          * An attribute to help CloudSim to identify the order of received events
@@ -52,6 +54,26 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
          */
 	private long serial = -1;
 
+	/** The next event in the same bucket of a {@link CalendarQueue}, relinked when the queue is deserialised. */
+	transient SimEvent next;
+
+	/** The neighbours of the event among the events with the same source and tag in an {@link IndexedEventList},
+	 * relinked when the list is deserialised. */
+	transient SimEvent indexPrev;
+	transient SimEvent indexNext;
+
+	/** Whether the event has been cancelled while waiting in the future event queue. */
+	private boolean cancelled = false;
+
+	/** Whether an entity keeps the event after processing it, so that it is not recycled. */
+	private boolean retained = false;
+
+	/** Whether the event is free in a {@link SimEventPool}. */
+	boolean pooled = false;
+
+	/** The acknowledgement carried by the event, reused when the event is recycled. */
+	private AckPayload ack;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -64,6 +86,17 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 
 	// ------------------- PACKAGE LEVEL METHODS --------------------------
 	SimEvent(int type, double time, int src, int dest, CloudSimTags tag, Object edata) {
+		init(type, time, src, dest, tag, edata);
+	}
+
+	SimEvent(int type, double time, int src) {
+		this(type, time, src, src, CloudActionTags.BLANK, null);
+	}
+
+	/**
+	 * Sets the attributes of a new or recycled event.
+	 */
+	void init(int type, double time, int src, int dest, CloudSimTags tag, Object edata) {
 		etype = type;
 		this.time = time;
 		entSrc = src;
@@ -73,14 +106,42 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		endWaitingTime = -1.0;
 	}
 
-	SimEvent(int type, double time, int src) {
-		this(type, time, src, src, CloudActionTags.BLANK, null);
+	/**
+	 * Clears the event before it is recycled, so that it no longer references its data.
+	 */
+	void reset() {
+		init(ENULL, 0, -1, -1, null, null);
+		serial = -1;
+		next = null;
+		indexPrev = null;
+		indexNext = null;
+		cancelled = false;
+		retained = false;
+	}
+
+	/**
+	 * Sets the data of the event to its acknowledgement.
+	 *
+	 * @param entityId the id of the entity that processed the request
+	 * @param objectId the id of the object of the request
+	 * @param success whether the request succeeded
+	 */
+	void setAck(int entityId, int objectId, boolean success) {
+		if (ack == null) {
+			ack = new AckPayload();
+		}
+		ack.set(entityId, objectId, success);
+		data = ack;
 	}
 
 	protected void setSerial(long serial) {
 		this.serial = serial;
 	}
 
+	protected void setCancelled(boolean cancelled) {
+		this.cancelled = cancelled;
+	}
+
 	/**
 	 * Sets the time that the event was removed from the queue to start service.
 	 *
@@ -146,6 +207,35 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	public int getSource() {
 		return entSrc;
 	}
+	/**
+	 * Checks if the event has been cancelled. A cancelled event stays in the future event queue until it reaches the
+	 * head, and is then dropped without being dispatched.
+	 *
+	 * @return true if the event has been cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Keeps the event from being recycled once the entity has processed it. Events are taken from a pool owned by
+	 * the simulation and returned to it when {@link SimEntity#processEvent(SimEvent)} returns, so an entity that
+	 * stores an event, or the {@link AckPayload} it carries, beyond that call must retain it first.
+	 */
+	public void retain() {
+		retained = true;
+	}
+
+	/**
+	 * Checks if the event has been retained by an entity.
+	 *
+	 * @return true if the event is never recycled
+	 * @see #retain()
+	 */
+	public boolean isRetained() {
+		return retained;
+	}
+
 	/**
 	 * Get the simulation time that this event was scheduled.
 	 *
@@ -202,6 +292,11 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 
 	@Override
 	public Object clone() {
-		return new SimEvent(etype, time, entSrc, entDst, tag, data);
+		SimEvent copy = new SimEvent(etype, time, entSrc, entDst, tag, data);
+		if (ack != null && data == ack) {
+			// the acknowledgement belongs to this event, which may be recycled
+			copy.setAck(ack.getEntityId(), ack.getObjectId(), ack.isSuccess());
+		}
+		return copy;
 	}
 }
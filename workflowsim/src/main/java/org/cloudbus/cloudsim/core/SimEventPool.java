@@ -0,0 +1,77 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+
+/**
+ * A pool of recycled {@link SimEvent}s, owned by the simulation. Events are acquired when they are scheduled and
+ * released once they have been processed, so that a steady-state simulation does not allocate events.
+ * <p>
+ * Retained and cancelled events are never released: the former are kept by an entity, the latter may have been
+ * returned to the caller of {@link CloudSim#cancel(int, org.cloudbus.cloudsim.core.predicates.Predicate)}.
+ */
+class SimEventPool {
+
+	/** The maximum number of free events, so that a burst of events is not kept for the whole simulation. */
+	private static final int MAX_SIZE = 1 << 16;
+
+	/** The free events, a stack. */
+	private SimEvent[] events = new SimEvent[64];
+
+	/** The number of free events. */
+	private int size = 0;
+
+	/** The number of events allocated by the pool. */
+	private long createdNum = 0;
+
+	/**
+	 * Gets a free event, or a new one if the pool is empty.
+	 */
+	SimEvent acquire(int type, double time, int src, int dest, CloudSimTags tag, Object edata) {
+		if (size == 0) {
+			createdNum++;
+			return new SimEvent(type, time, src, dest, tag, edata);
+		}
+		SimEvent event = events[--size];
+		events[size] = null;
+		event.pooled = false;
+		event.init(type, time, src, dest, tag, edata);
+		return event;
+	}
+
+	/**
+	 * Returns a processed event to the pool, unless it is retained, cancelled or already free.
+	 */
+	void release(SimEvent event) {
+		if (event.pooled || event.isRetained() || event.isCancelled() || size == MAX_SIZE) {
+			return;
+		}
+		event.reset();
+		event.pooled = true;
+		if (size == events.length) {
+			events = Arrays.copyOf(events, 2 * size);
+		}
+		events[size++] = event;
+	}
+
+	/**
+	 * @return the number of free events
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of events allocated by the pool
+	 */
+	long getCreatedNum() {
+		return createdNum;
+	}
+}
@@ -0,0 +1,1124 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The state of one simulation: its entities, future event queue and clock, and the loop that dispatches the events.
+ * <p>
+ * Each thread has a current simulation, which the static methods of {@link CloudSim} act upon, so that the entities
+ * and the code built on {@link CloudSim} need no reference to it. {@link CloudSim#init(int, Calendar, boolean)}
+ * creates a new simulation and makes it the current one of the calling thread, hence independent simulations can
+ * run concurrently, one per thread. A simulation is not thread-safe and must only be run by one thread at a time.
+ * <p>
+ * Objects that belong to a simulation, such as the configuration of an experiment, can be attached to it with
+ * {@link #setAttribute(Class, Object)}. Objects that only belong to one run of it, such as an open trace file, are
+ * attached with {@link #setTransientAttribute(Class, Object)} and are left out of its snapshots.
+ * <p>
+ * A simulation can be captured between two ticks into a {@link SimulationSnapshot}, which restores independent
+ * copies of it that continue from the time of the snapshot.
+ *
+ * @see CloudSim
+ */
+public class Simulation implements Serializable {
+
+	/** The Constant CLOUDSIM_VERSION_STRING. */
+	private static final String CLOUDSIM_VERSION_STRING = "7.0";
+
+	/** The Constant NOT_FOUND. */
+	private static final int NOT_FOUND = -1;
+
+	/** The largest number of decimals of the clock. */
+	private static final int MAX_CLOCK_SCALE = 9;
+
+	/** The powers of ten of the clock scales. */
+	private static final double[] SCALE_FACTORS = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+
+	/** The clock scale of the simulations created afterwards. */
+	private static volatile int defaultClockScale = -1;
+
+	/** The simulation of each thread. */
+	private static final ThreadLocal<Simulation> CURRENT = ThreadLocal.withInitial(Simulation::new);
+
+	/** The id of CIS entity. */
+	private int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	private int shutdownId = -1;
+
+	/** The CIS object. */
+	private CloudInformationService cis = null;
+
+	/** The trace flag. */
+	private boolean traceFlag = false;
+
+	/** The calendar. */
+	private Calendar calendar = null;
+
+	/** The termination time. */
+	private double terminateAt = -1;
+
+	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
+	private double minTimeBetweenEvents = 0.01;
+
+	/** The entities. */
+	private List<SimEntity> entities;
+
+	/** The ids of the entities that may have events in their incoming queue. */
+	private BitSet runnableEntities;
+
+	/** The future event queue, indexed by source entity and tag for cancellation. */
+	private IndexedEventList future;
+
+	/** The recycled events, a restored simulation starts with an empty pool. */
+	private transient SimEventPool eventPool;
+
+	/** Creates the future event queue when the simulation is initialised, a restored simulation has none. */
+	private final transient Supplier<? extends FutureEventList> futureEventListFactory;
+
+	/** The current simulation clock. */
+	private double clock;
+
+	/** The number of decimals the clock is rounded half up to when it is read, or -1 to read the exact clock. */
+	private int clockScale = defaultClockScale;
+
+	/** The clock rounded to the clock scale, updated when the clock advances. */
+	private double scaledClock;
+
+	/** Flag for checking if the simulation is running. */
+	private boolean running;
+
+	/** The entities by name. */
+	private Map<String, SimEntity> entitiesByName;
+
+	// The predicates used in entity wait methods
+	/** The wait predicates. */
+	private Map<Integer, Predicate> waitPredicates;
+
+	/** The paused, may be changed by another thread. */
+	private volatile boolean paused = false;
+
+	/** The pause at. */
+	private long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	private boolean abruptTerminate = false;
+
+	/** The number of events dispatched since the simulation has started. */
+	private long numDispatchedEvents;
+
+	/** The name that tells the simulation apart in the recorded events, or null if it is unnamed. */
+	private String name;
+
+	/** The objects attached to the simulation, by type. */
+	private final Map<Class<?>, Object> attributes = new HashMap<>();
+
+	/** The objects attached to the simulation that are left out of its snapshots, by type. */
+	private transient Map<Class<?>, Object> transientAttributes = new HashMap<>();
+
+	/** Whether the entities are processing the events of a tick. */
+	private transient boolean ticking = false;
+
+	/** The time of the requested snapshot, or -1 if none. */
+	private transient double snapshotAt = -1;
+
+	/** The snapshot taken at {@link #snapshotAt}. */
+	private transient SimulationSnapshot snapshot;
+
+	/** The profiler of the event loop, or null if it is not profiled. */
+	private transient SimulationProfiler profiler;
+
+	/**
+	 * Creates a simulation with a binary heap as future event list.
+	 */
+	public Simulation() {
+		this(EventQueue::new);
+	}
+
+	/**
+	 * Creates a simulation.
+	 *
+	 * @param futureEventListFactory creates the future event list, e.g. {@code EventQueue::new} for a binary heap or
+	 *            {@code CalendarQueue::new} for a calendar queue
+	 */
+	public Simulation(Supplier<? extends FutureEventList> futureEventListFactory) {
+		this.futureEventListFactory = futureEventListFactory;
+		initialize();
+	}
+
+	/**
+	 * Gets the current simulation of the calling thread, a new one if none has been set.
+	 *
+	 * @return the simulation
+	 */
+	public static Simulation current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Sets the current simulation of the calling thread, e.g. to drive a simulation created by another thread.
+	 *
+	 * @param simulation the simulation
+	 */
+	public static void setCurrent(Simulation simulation) {
+		CURRENT.set(Objects.requireNonNull(simulation));
+	}
+
+	/**
+	 * Initialises the simulation and creates its CloudInformationService and CloudSimShutdown entities. The
+	 * simulation must be the current one of the calling thread.
+	 *
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @see CloudSim#init(int, Calendar, boolean)
+	 */
+	void init(int numUser, Calendar cal, boolean traceFlag) {
+		try {
+			initCommonVariable(cal, traceFlag, numUser);
+
+			// create a GIS object
+			cis = new CloudInformationService("CloudInformationService");
+
+			// set all the above entity IDs
+			cisId = cis.getId();
+		} catch (Exception s) {
+			Log.println("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.println(s.getMessage());
+		}
+	}
+
+	/**
+	 * Initialises all the common attributes.
+	 *
+	 * @param _calendar the _calendar
+	 * @param _traceFlag the _trace flag
+	 * @param numUser number of users
+	 * @throws Exception This happens when creating this entity before initialising CloudSim package
+	 *             or this entity name is <tt>null</tt> or empty
+	 */
+	private void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
+			throws Exception {
+		Log.println("Initialising...");
+		initialize();
+		// NOTE: the order for the below 3 lines are important
+		traceFlag = _traceFlag;
+
+		// Set the current Wall clock time as the starting time of
+		// simulation
+		if (_calendar == null) {
+			calendar = Calendar.getInstance();
+		} else {
+			calendar = _calendar;
+		}
+
+		// creates a CloudSimShutdown object
+		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
+		shutdownId = shutdown.getId();
+	}
+
+	/**
+	 * Initialise the simulation state.
+	 */
+	private void initialize() {
+		entities = new ArrayList<>();
+		runnableEntities = new BitSet();
+		entitiesByName = new LinkedHashMap<>();
+		future = new IndexedEventList(futureEventListFactory.get());
+		eventPool = new SimEventPool();
+		waitPredicates = new HashMap<>();
+		setClock(0);
+		running = false;
+	}
+
+	/**
+	 * Attaches an object to the simulation, replacing the object of the same type.
+	 *
+	 * @param type the type of the object
+	 * @param value the object, or null to detach it
+	 * @param <T> the type of the object
+	 */
+	public <T> void setAttribute(Class<T> type, T value) {
+		if (value == null) {
+			attributes.remove(type);
+		} else {
+			attributes.put(type, value);
+		}
+	}
+
+	/**
+	 * Gets an object attached to the simulation.
+	 *
+	 * @param type the type of the object
+	 * @param <T> the type of the object
+	 * @return the object, or null if none of this type is attached
+	 */
+	public <T> T getAttribute(Class<T> type) {
+		return type.cast(attributes.get(type));
+	}
+
+	/**
+	 * Attaches an object to this run of the simulation, replacing the object of the same type. Unlike the attributes,
+	 * it is not copied into the snapshots, so a restored simulation starts without it.
+	 *
+	 * @param type the type of the object
+	 * @param value the object, or null to detach it
+	 * @param <T> the type of the object
+	 */
+	public <T> void setTransientAttribute(Class<T> type, T value) {
+		if (value == null) {
+			transientAttributes.remove(type);
+		} else {
+			transientAttributes.put(type, value);
+		}
+	}
+
+	/**
+	 * Gets an object attached to this run of the simulation.
+	 *
+	 * @param type the type of the object
+	 * @param <T> the type of the object
+	 * @return the object, or null if none of this type is attached
+	 */
+	public <T> T getTransientAttribute(Class<T> type) {
+		return type.cast(transientAttributes.get(type));
+	}
+
+	/**
+	 * Starts the execution of the simulation.
+	 *
+	 * @return the last clock time
+	 * @see CloudSim#startSimulation()
+	 */
+	double startSimulation() {
+		Log.printlnConcat("Starting CloudSim version ", CLOUDSIM_VERSION_STRING);
+		double clock = run();
+
+		// reset the variables of the run
+		cisId = -1;
+		shutdownId = -1;
+		cis = null;
+		calendar = null;
+		traceFlag = false;
+
+		return clock;
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation.
+	 */
+	public void terminateSimulation() {
+		running = false;
+		printMessage("Simulation: Reached termination time.");
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation at a given time.
+	 *
+	 * @param time the time at which the simulation has to be terminated
+	 * @return true, if successful otherwise.
+	 */
+	public boolean terminateSimulation(double time) {
+		if (time <= clock) {
+			return false;
+		} else {
+			terminateAt = time;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the minimum time between events. Events within shorter periods after the last event are discarded.
+	 * @return the minimum time between events.
+	 */
+	public double getMinTimeBetweenEvents() {
+		return minTimeBetweenEvents;
+	}
+
+	void setMinTimeBetweenEvents(double minTimeBetweenEvents) {
+		this.minTimeBetweenEvents = minTimeBetweenEvents;
+	}
+
+	/**
+	 * Gets a new copy of initial simulation Calendar.
+	 *
+	 * @return a new copy of Calendar object or if the simulation hasn't been initialized
+	 */
+	public Calendar getSimulationCalendar() {
+		// make a new copy
+		Calendar clone = calendar;
+		if (calendar != null) {
+			clone = (Calendar) calendar.clone();
+		}
+
+		return clone;
+	}
+
+	/**
+	 * Gets the entity ID of <tt>CloudInformationService</tt>.
+	 *
+	 * @return the Entity ID or if it is not found
+	 */
+	public int getCloudInfoServiceEntityId() {
+		return cisId;
+	}
+
+	/**
+	 * Gets the list of all Cloud resources registered to the CIS entity.
+	 *
+	 * @return A List containing CloudResource ID (as an Integer object) or if a CIS entity hasn't
+	 *         been created before
+	 */
+	public List<Integer> getCloudResourceList() {
+		if (cis == null) {
+			return null;
+		}
+
+		return cis.getList();
+	}
+
+	/**
+	 * Get the current simulation time, rounded to the clock scale if one is set.
+	 *
+	 * @return the simulation time
+	 */
+	public double clock() {
+		return scaledClock;
+	}
+
+	/**
+	 * Sets the number of decimals the clock is rounded half up to when it is read, e.g. 2 for a resolution of 0.01.
+	 * Only the clock seen by the entities is rounded, the events keep their exact times.
+	 *
+	 * @param scale the number of decimals, or -1 to read the exact clock
+	 */
+	public void setClockScale(int scale) {
+		if (scale < -1 || scale > MAX_CLOCK_SCALE) {
+			throw new IllegalArgumentException(String.format("The clock scale must be between -1 and %d.", MAX_CLOCK_SCALE));
+		}
+		clockScale = scale;
+		setClock(clock);
+	}
+
+	/**
+	 * @return the number of decimals the clock is rounded to when it is read, or -1 if it is read exactly
+	 */
+	public int getClockScale() {
+		return clockScale;
+	}
+
+	/**
+	 * Sets the clock scale of the simulations created afterwards, see {@link #setClockScale(int)}.
+	 *
+	 * @param scale the number of decimals, or -1 to read the exact clock
+	 */
+	public static void setDefaultClockScale(int scale) {
+		if (scale < -1 || scale > MAX_CLOCK_SCALE) {
+			throw new IllegalArgumentException(String.format("The clock scale must be between -1 and %d.", MAX_CLOCK_SCALE));
+		}
+		defaultClockScale = scale;
+	}
+
+	/**
+	 * Advances the clock, and rounds it once for all the reads until the next advance.
+	 *
+	 * @param time the time
+	 */
+	private void setClock(double time) {
+		clock = time;
+		scaledClock = clockScale < 0 ? time : roundToScale(time, clockScale);
+	}
+
+	/**
+	 * Rounds a time half up to a number of decimals, with the result of
+	 * {@code BigDecimal.valueOf(time).setScale(scale, RoundingMode.HALF_UP).doubleValue()}. BigDecimal rounds the
+	 * shortest decimal representation of the time, which may only round differently from the scaled time near a tie,
+	 * so only those times are rounded through BigDecimal.
+	 *
+	 * @param time the time
+	 * @param scale the number of decimals
+	 * @return the rounded time
+	 */
+	static double roundToScale(double time, int scale) {
+		double factor = SCALE_FACTORS[scale];
+		double scaled = time * factor;
+		double floor = Math.floor(scaled);
+		double fraction = scaled - floor;
+		if (time < 0 || !(scaled < 0x1p52) || Math.abs(fraction - 0.5) <= 1024 * Math.ulp(scaled)) {
+			return BigDecimal.valueOf(time).setScale(scale, RoundingMode.HALF_UP).doubleValue();
+		}
+		// the quotient of the exact integer is the double nearest to the decimal
+		return (fraction < 0.5 ? floor : floor + 1) / factor;
+	}
+
+	/**
+	 * Get the current number of entities in the simulation.
+	 *
+	 * @return The number of entities
+	 */
+	public int getNumEntities() {
+		return entities.size();
+	}
+
+	/**
+	 * Get the entity with a given id.
+	 *
+	 * @param id the entity's unique id number
+	 * @return The entity, or if it could not be found
+	 */
+	public SimEntity getEntity(int id) {
+		return entities.get(id);
+	}
+
+	/**
+	 * Get the entity with a given name.
+	 *
+	 * @param name The entity's name
+	 * @return The entity
+	 */
+	public SimEntity getEntity(String name) {
+		return entitiesByName.get(name);
+	}
+
+	/**
+	 * Get the id of an entity with a given name.
+	 *
+	 * @param name The entity's name
+	 * @return The entity's unique id number
+	 */
+	public int getEntityId(String name) {
+		SimEntity obj = entitiesByName.get(name);
+		if (obj == null) {
+			return NOT_FOUND;
+		} else {
+			return obj.getId();
+		}
+	}
+
+	/**
+	 * Returns a list of entities created for the simulation.
+	 *
+	 * @return the entity iterator
+	 */
+	public List<SimEntity> getEntityList() {
+		// create a new list to prevent the user from changing
+		// the list of entities used by Simulation
+		return new LinkedList<>(entities);
+	}
+
+	/**
+	 * Add a new entity to the simulation.
+	 *
+	 * @param e The new entity
+	 */
+	void addEntity(SimEntity e) {
+		SimEvent evt;
+		if (running) {
+			// Post an event to make this entity
+			evt = eventPool.acquire(SimEvent.CREATE, clock, 1, 0, CloudActionTags.BLANK, e);
+			future.addEvent(evt);
+		}
+		if (e.getId() == -1) { // Only add once!
+			int id = entities.size();
+			e.setId(id);
+			entities.add(e);
+			entitiesByName.put(e.getName(), e);
+		}
+	}
+
+	/**
+	 * Internal method used to add a new entity to the simulation when the simulation is running.
+	 *
+	 * @param e The new entity
+	 */
+	private void addEntityDynamically(SimEntity e) {
+		if (e == null) {
+			throw new IllegalArgumentException("Adding null entity.");
+		} else {
+			printMessage("Adding: " + e.getName());
+		}
+		e.startEntity();
+	}
+
+	/**
+	 * Internal method used to run ticks until the simulation ends or, when run in steps, until the condition does not
+	 * hold. The condition is checked once the entities have processed the events of a tick and before the next events
+	 * are dispatched, so a run in steps goes through the same ticks as an uninterrupted one.
+	 * <p>
+	 * The entities of a tick only see the events sent before it, so the tick is the only window a conservative
+	 * parallel engine could run entities concurrently in: brokers and datacenters send each other events with no
+	 * delay, which leaves no lookahead beyond the current time. The entities are still run one after the other, as
+	 * the datacenters of a tick draw the transient faults of their jobs from the one random stream of the
+	 * experiment, in entity order, and only a few ticks have more than one datacenter to run. Independent
+	 * simulations are run concurrently instead, one per thread.
+	 *
+	 * @param condition the condition to keep running, or null to run to the end, waiting while the simulation is paused
+	 * @return true if the simulation has ended, false if it has stopped before the next events
+	 */
+	private boolean runTicks(BooleanSupplier condition) {
+		while (true) {
+			runEntities();
+
+			if (future.isEmpty()) {
+				running = false;
+				printMessage(CloudSim.clock()+": Simulation: No more future events");
+				return true;
+			}
+
+			if (profiler != null) {
+				profiler.tick(clock, future.size());
+			}
+
+			// the entities have processed all the events due at or before the time of the requested snapshot
+			if (snapshotAt >= 0 && future.peek().eventTime() > snapshotAt) {
+				snapshot = snapshot();
+				snapshotAt = -1;
+			}
+
+			// a run in steps returns to the caller instead of waiting while paused
+			if (condition != null && (paused || !condition.getAsBoolean())) {
+				return false;
+			}
+
+			DispatchBatchEvent batch = new DispatchBatchEvent();
+			batch.begin();
+			long batchStart = numDispatchedEvents;
+			double clk = future.peek().eventTime();
+			while (!future.isEmpty() && future.peek().eventTime() == clk) {
+				dispatchEvent(future.poll());
+				numDispatchedEvents++;
+			}
+			batch.end();
+			if (batch.shouldCommit()) {
+				batch.simName = name;
+				batch.simTime = clk;
+				batch.eventNum = (int) (numDispatchedEvents - batchStart);
+				batch.runnableEntityNum = runnableEntities.cardinality();
+				batch.entityIds = runnableEntities.toString();
+				batch.queueDepth = future.size();
+				batch.commit();
+			}
+
+			if (abruptTerminate) {
+				return true;
+			}
+
+			// this block allows termination of simulation at a specific time
+			if (terminateAt > 0.0 && clock >= terminateAt) {
+				terminateSimulation();
+				setClock(terminateAt);
+				return true;
+			}
+
+			if (pauseAt != -1
+					&& ((!future.isEmpty() && clock <= pauseAt && pauseAt <= future.peek()
+							.eventTime()) || future.isEmpty() && pauseAt <= clock)) {
+				pauseSimulation();
+				setClock(pauseAt);
+			}
+
+			while (condition == null && paused) {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal method used to run the entities with incoming events, which processes the events of the last tick.
+	 */
+	private void runEntities() {
+		// only the entities with incoming events have something to run, visit them in id order
+		SimEntity ent;
+		ticking = true;
+		for (int i = runnableEntities.nextSetBit(0); i >= 0; i = runnableEntities.nextSetBit(i + 1)) {
+			ent = entities.get(i);
+			if (ent.getState() == SimEntity.EntityStatus.RUNNABLE) {
+				ent.run();
+			}
+			// an entity that is not runnable keeps its events until it is
+			if (!ent.hasIncomingEvents()) {
+				runnableEntities.clear(i);
+			}
+		}
+		ticking = false;
+	}
+
+	/**
+	 * Used to pause an entity for some time.
+	 *
+	 * @param srcId the entity source id
+	 * @param delay the delay
+	 */
+	void pause(int srcId, double delay) {
+		SimEvent e = eventPool.acquire(SimEvent.HOLD_DONE, clock + delay, srcId, srcId, CloudActionTags.BLANK, null);
+		future.addEvent(e);
+		entities.get(srcId).setState(SimEntity.EntityStatus.HOLDING);
+	}
+
+	/**
+	 * Used to send an event from one entity to another.
+	 *
+	 * @param srcId the src
+	 * @param dstId the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	void send(int srcId, int dstId, double delay, CloudSimTags tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+		if(delay >= Double.MAX_VALUE) {
+			throw new RuntimeException("Send delay can't be infinite.");
+		}
+
+		SimEvent e = eventPool.acquire(SimEvent.SEND, clock + delay, srcId, dstId, tag, data);
+		future.addEvent(e);
+	}
+
+	/**
+	 * Used to send an acknowledgement from one entity to another.
+	 *
+	 * @param srcId the src
+	 * @param dstId the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param objectId the id of the object of the acknowledged request
+	 * @param success whether the request succeeded
+	 */
+	void sendAck(int srcId, int dstId, double delay, CloudSimTags tag, int objectId, boolean success) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+		if(delay >= Double.MAX_VALUE) {
+			throw new RuntimeException("Send delay can't be infinite.");
+		}
+
+		SimEvent e = eventPool.acquire(SimEvent.SEND, clock + delay, srcId, dstId, tag, null);
+		e.setAck(srcId, objectId, success);
+		future.addEvent(e);
+	}
+
+	/**
+	 * Used to send an event from one entity to another, with priority in the queue.
+	 *
+	 * @param srcId the src
+	 * @param dstId the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	void sendFirst(int srcId, int dstId, double delay, CloudSimTags tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = eventPool.acquire(SimEvent.SEND, clock + delay, srcId, dstId, tag, data);
+		future.addEventFirst(e);
+	}
+
+	/**
+	 * Sets an entity's state to be waiting.
+	 *
+	 * @param srcId the src
+	 * @param p the p
+	 */
+	void wait(int srcId, Predicate p) {
+		entities.get(srcId).setState(SimEntity.EntityStatus.WAITING);
+		if (p != CloudSim.SIM_ANY) {
+			// If a predicate has been used store it in order to check it
+			waitPredicates.put(srcId, p);
+		}
+	}
+
+	/**
+	 * Cancels the earliest event scheduled by an entity that matches a predicate.
+	 *
+	 * @param srcId the entity source id
+	 * @param p the p
+	 * @return the sim event
+	 */
+	SimEvent cancel(int srcId, Predicate p) {
+		return future.cancel(srcId, p);
+	}
+
+	/**
+	 * Cancels all events scheduled by an entity that match a given predicate.
+	 *
+	 * @param srcId the entity source id
+	 * @param p the p
+	 * @return true, if successful
+	 */
+	boolean cancelAll(int srcId, Predicate p) {
+		return future.cancelAll(srcId, p);
+	}
+
+	/**
+	 * Dispatch event to destination entity
+	 *
+	 * @param e the e
+	 */
+	private void dispatchEvent(SimEvent e) {
+		int dstId = e.getDestinationId();
+		int srcId = e.getSourceId();
+		SimEntity destEnt = entities.get(dstId);
+
+		// Update the system's clock
+		if (e.eventTime() < clock) {
+			throw new IllegalArgumentException("Past event detected.");
+		}
+		if (e.eventTime() != clock) {
+			setClock(e.eventTime());
+		}
+
+		// Ok now process it
+		switch (e.getType()) {
+			case SimEvent.ENULL -> throw new IllegalArgumentException("Event has a null type.");
+			case SimEvent.CREATE -> {
+				addEntityDynamically((SimEntity) e.getData());
+				releaseEvent(e);
+			}
+			case SimEvent.SEND -> {
+                if (destEnt.getState() == SimEntity.EntityStatus.WAITING) { // NOTE: this branch is never used
+                    Predicate p = waitPredicates.get(dstId);
+
+                    if ((p == null) || (p.match(e))) {
+                        destEnt.setState(SimEntity.EntityStatus.RUNNABLE);
+                        waitPredicates.remove(dstId);
+                    }
+                }
+				destEnt.deliverEvent(e);
+				runnableEntities.set(dstId);
+            }
+			case SimEvent.HOLD_DONE -> {
+				entities.get(srcId).setState(SimEntity.EntityStatus.RUNNABLE);
+				releaseEvent(e);
+			}
+			default -> {
+			}
+		}
+	}
+
+	/**
+	 * Returns an event that has been processed to the pool of the simulation, unless it is retained.
+	 *
+	 * @param e the event
+	 */
+	void releaseEvent(SimEvent e) {
+		eventPool.release(e);
+	}
+
+	/**
+	 * @return the pool of recycled events
+	 */
+	SimEventPool getEventPool() {
+		return eventPool;
+	}
+
+	/**
+	 * Internal method used to start the simulation.
+	 */
+	void runStart() {
+		running = true;
+		// Start all the entities
+		for (SimEntity ent : entities) {
+			ent.startEntity();
+		}
+
+		printMessage("Entities started.");
+	}
+
+	/**
+	 * Check if the simulation is still running.
+	 *
+	 * @return if the simulation is still running, otherwise
+	 */
+	public boolean running() {
+		return running;
+	}
+
+	/**
+	 * This method is called if one wants to pause the simulation.
+	 *
+	 * @return true, if successful otherwise.
+	 */
+	public boolean pauseSimulation() {
+		paused = true;
+		return paused;
+	}
+
+	/**
+	 * This method is called if one wants to pause the simulation at a given time.
+	 *
+	 * @param time the time at which the simulation has to be paused
+	 * @return true, if successful otherwise.
+	 */
+	public boolean pauseSimulation(long time) {
+		if (time <= clock) {
+			return false;
+		} else {
+			pauseAt = time;
+		}
+		return true;
+	}
+
+	/**
+	 * This method is called if one wants to resume the simulation that has previously been paused.
+	 *
+	 * @return if the simulation has been restarted or or otherwise.
+	 */
+	public boolean resumeSimulation() {
+		paused = false;
+
+		if (pauseAt <= clock) {
+			pauseAt = -1;
+		}
+
+		return !paused;
+	}
+
+	/**
+	 * Start the simulation running. This should be called after all the entities have been setup
+	 * and added, and their ports linked.
+	 *
+	 * @return the last clock value
+	 */
+	double run() {
+		if (!running) {
+			runStart();
+		}
+		runTicks(null);
+		return endRun();
+	}
+
+	/**
+	 * Runs the simulation until the events due at or before the time have been processed, then returns. The clock is
+	 * left at the time of the last events processed. The simulation is started on the first step and finished on the
+	 * step it runs out of events in, like {@link #run()}.
+	 *
+	 * @param time the time to run until
+	 * @return true if the simulation can be run further, false if it has finished
+	 */
+	public boolean runUntil(double time) {
+		return runWhile(() -> future.peek().eventTime() <= time);
+	}
+
+	/**
+	 * Runs the simulation until at least the number of events has been dispatched and processed, then returns. The
+	 * events of a tick are dispatched together, so the step ends with the tick of the last of them.
+	 *
+	 * @param num the number of events
+	 * @return true if the simulation can be run further, false if it has finished
+	 * @see #getNumDispatchedEvents()
+	 */
+	public boolean runEvents(int num) {
+		long target = numDispatchedEvents + num;
+		return runWhile(() -> numDispatchedEvents < target);
+	}
+
+	/**
+	 * Runs the simulation while the condition holds, then returns without blocking. The condition is checked each time
+	 * the entities have processed the events of a tick, before the next events are dispatched, so the state between
+	 * two steps is the same as when a snapshot is taken and the steps can be resumed any time. A paused simulation
+	 * returns from its step instead of waiting and resumes on the next one after {@link #resumeSimulation()}.
+	 *
+	 * @param condition the condition to keep running
+	 * @return true if the simulation can be run further, false if it has finished
+	 */
+	public boolean runWhile(BooleanSupplier condition) {
+		// the simulation has finished
+		if (future == null) {
+			return false;
+		}
+		if (!running) {
+			runStart();
+		}
+		if (!runTicks(condition)) {
+			return true;
+		}
+		endRun();
+		return false;
+	}
+
+	/**
+	 * @return the number of events dispatched since the simulation has started
+	 */
+	public long getNumDispatchedEvents() {
+		return numDispatchedEvents;
+	}
+
+	/**
+	 * Internal method used to end the run of the simulation.
+	 *
+	 * @return the last clock value
+	 */
+	private double endRun() {
+		double clock = clock();
+
+		finishSimulation();
+		runStop();
+
+		return clock;
+	}
+
+	/**
+	 * Internal method used to stop the simulation.
+	 */
+	void runStop() {
+		printMessage("Simulation completed.");
+	}
+
+	/**
+	 * Internal method that allows the entities to terminate.
+	 */
+	private void finishSimulation() {
+		// Allow all entities to exit their body method
+		if (!abruptTerminate) {
+			for (SimEntity ent : entities) {
+				if (ent.getState() != SimEntity.EntityStatus.FINISHED) {
+					ent.run();
+				}
+			}
+		}
+
+		for (SimEntity ent : entities) {
+			ent.shutdownEntity();
+		}
+
+		// reset the state of the run
+		entities = null;
+		runnableEntities = null;
+		entitiesByName = null;
+		future = null;
+		setClock(0);
+		running = false;
+
+		waitPredicates = null;
+		paused = false;
+		pauseAt = -1;
+		abruptTerminate = false;
+		numDispatchedEvents = 0;
+	}
+
+	/**
+	 * Takes a snapshot of the simulation: its entities and all the objects they reference, the future events, the
+	 * clock and the attached objects. It cannot be taken by an entity while it processes an event, use
+	 * {@link #snapshotAt(double)} to take one during a run.
+	 *
+	 * @return the snapshot
+	 * @throws IllegalStateException if the entities are processing the events of a tick
+	 */
+	public SimulationSnapshot snapshot() {
+		if (ticking) {
+			throw new IllegalStateException("A snapshot cannot be taken while the entities process their events.");
+		}
+		return SimulationSnapshot.of(this);
+	}
+
+	/**
+	 * Requests a snapshot of the simulation during the run, taken once the entities have processed all the events due
+	 * at or before the time, see {@link #getSnapshot()}. No snapshot is taken if the simulation ends before.
+	 *
+	 * @param time the time of the snapshot
+	 */
+	public void snapshotAt(double time) {
+		snapshotAt = time;
+		snapshot = null;
+	}
+
+	/**
+	 * @return the snapshot requested with {@link #snapshotAt(double)}, or null if it has not been taken
+	 */
+	public SimulationSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Sets the profiler of the event loop, see {@link SimulationProfiler}.
+	 *
+	 * @param profiler the profiler, or null to stop profiling
+	 */
+	public void setProfiler(SimulationProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * @return the profiler of the event loop, or null if it is not profiled
+	 */
+	public SimulationProfiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Sets the name recorded with the events of the simulation, so that concurrent simulations can be told apart.
+	 *
+	 * @param name the name, or null if it is unnamed
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the name recorded with the events of the simulation, or null if it is unnamed
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Restores the transient state of a simulation read from a snapshot.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		eventPool = new SimEventPool();
+		transientAttributes = new HashMap<>();
+		snapshotAt = -1;
+	}
+
+	/**
+	 * Abruptally terminate.
+	 */
+	public void abruptallyTerminate() {
+		abruptTerminate = true;
+	}
+
+	/**
+	 * Prints a message about the progress of the simulation.
+	 *
+	 * @param message the message
+	 */
+	private void printMessage(String message) {
+		Log.println(message);
+	}
+
+	/**
+	 * Checks if is paused.
+	 *
+	 * @return true, if is paused
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+}
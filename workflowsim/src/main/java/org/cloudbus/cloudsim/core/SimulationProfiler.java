@@ -0,0 +1,236 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An opt-in profiler of the event loop of a {@link Simulation}: it counts the events processed by the entities per
+ * tag, times their processing per entity class, samples the depth of the future event queue once per tick and
+ * measures the rate of events over the simulated and the wall time. A simulation without a profiler only checks for
+ * one once per tick and once per entity run.
+ * <p>
+ * The profiler is updated by the thread that runs the simulation and can be read by others while it runs, e.g. over
+ * JMX once it is registered.
+ *
+ * @see Simulation#setProfiler(SimulationProfiler)
+ */
+public class SimulationProfiler implements SimulationProfilerMXBean {
+
+	/** The JMX domain of the profilers. */
+	public static final String JMX_DOMAIN = "org.cloudbus.cloudsim";
+
+	/** The number of events processed, per tag. */
+	private final Map<CloudSimTags, long[]> tagCounts = new HashMap<>();
+
+	/** The number of events processed and the nanoseconds spent processing them, per entity class. */
+	private final Map<Class<?>, long[]> entityStats = new HashMap<>();
+
+	/** The number of ticks per depth of the future event queue, indexed by depth. */
+	private long[] depthCounts = new long[64];
+
+	/** The maximum depth of the future event queue. */
+	private int maxDepth;
+
+	/** The number of events processed. */
+	private long numEvents;
+
+	/** The number of ticks run. */
+	private long numTicks;
+
+	/** The simulated time of the last tick. */
+	private double clock;
+
+	/** The wall time of the first tick, or -1 if none has been run. */
+	private long firstTickNanos = -1;
+
+	/** The wall time of the last tick. */
+	private long lastTickNanos;
+
+	/**
+	 * Records an event processed by an entity.
+	 *
+	 * @param entity the entity
+	 * @param ev the event
+	 * @param nanos the nanoseconds spent processing it
+	 */
+	synchronized void eventProcessed(SimEntity entity, SimEvent ev, long nanos) {
+		numEvents++;
+		tagCounts.computeIfAbsent(ev.getTag(), tag -> new long[1])[0]++;
+		long[] stats = entityStats.computeIfAbsent(entity.getClass(), type -> new long[2]);
+		stats[0]++;
+		stats[1] += nanos;
+	}
+
+	/**
+	 * Records a tick, once the entities have processed its events.
+	 *
+	 * @param clock the simulated time of the tick
+	 * @param depth the number of future events
+	 */
+	synchronized void tick(double clock, int depth) {
+		long now = System.nanoTime();
+		if (firstTickNanos < 0) {
+			firstTickNanos = now;
+		}
+		lastTickNanos = now;
+		this.clock = clock;
+		numTicks++;
+		if (depth >= depthCounts.length) {
+			depthCounts = Arrays.copyOf(depthCounts, Math.max(depth + 1, depthCounts.length * 2));
+		}
+		depthCounts[depth]++;
+		maxDepth = Math.max(maxDepth, depth);
+	}
+
+	/**
+	 * Registers the profiler with the platform MBean server, replacing the one registered with the same name.
+	 *
+	 * @param name the name of the profiled simulation
+	 * @return the JMX name of the profiler
+	 * @throws IllegalStateException if the profiler cannot be registered
+	 */
+	public ObjectName register(String name) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=SimulationProfiler,name=" + ObjectName.quote(name));
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(this, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException(String.format("The profiler of %s cannot be registered.", name), e);
+		}
+	}
+
+	@Override
+	public synchronized long getNumEvents() {
+		return numEvents;
+	}
+
+	@Override
+	public synchronized long getNumTicks() {
+		return numTicks;
+	}
+
+	@Override
+	public synchronized double getClock() {
+		return clock;
+	}
+
+	@Override
+	public synchronized double getWallTime() {
+		return firstTickNanos < 0 ? 0 : (lastTickNanos - firstTickNanos) / 1e9;
+	}
+
+	@Override
+	public synchronized double getEventsPerSimulatedSecond() {
+		return clock > 0 ? numEvents / clock : 0;
+	}
+
+	@Override
+	public synchronized double getEventsPerWallSecond() {
+		double wallTime = getWallTime();
+		return wallTime > 0 ? numEvents / wallTime : 0;
+	}
+
+	@Override
+	public synchronized Map<String, Long> getEventCountsByTag() {
+		Map<String, Long> counts = new TreeMap<>();
+		tagCounts.forEach((tag, count) -> counts.put(tagName(tag), count[0]));
+		return counts;
+	}
+
+	@Override
+	public synchronized Map<String, Long> getEventCountsByEntityClass() {
+		Map<String, Long> counts = new TreeMap<>();
+		entityStats.forEach((type, stats) -> counts.put(type.getSimpleName(), stats[0]));
+		return counts;
+	}
+
+	@Override
+	public synchronized Map<String, Long> getProcessingNanosByEntityClass() {
+		Map<String, Long> nanos = new TreeMap<>();
+		entityStats.forEach((type, stats) -> nanos.put(type.getSimpleName(), stats[1]));
+		return nanos;
+	}
+
+	@Override
+	public int getQueueDepthP50() {
+		return getQueueDepthPercentile(50);
+	}
+
+	@Override
+	public int getQueueDepthP90() {
+		return getQueueDepthPercentile(90);
+	}
+
+	@Override
+	public int getQueueDepthP99() {
+		return getQueueDepthPercentile(99);
+	}
+
+	@Override
+	public synchronized int getQueueDepthMax() {
+		return maxDepth;
+	}
+
+	/**
+	 * Gets a percentile of the depth of the future event queue, sampled once per tick.
+	 *
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the smallest depth of at least the percentile of the ticks, or 0 if no tick has been run
+	 */
+	public synchronized int getQueueDepthPercentile(double percentile) {
+		long rank = (long) Math.ceil(numTicks * percentile / 100);
+		long count = 0;
+		for (int depth = 0; depth <= maxDepth; depth++) {
+			count += depthCounts[depth];
+			if (count >= rank && count > 0) {
+				return depth;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public synchronized void reset() {
+		tagCounts.clear();
+		entityStats.clear();
+		depthCounts = new long[64];
+		maxDepth = 0;
+		numEvents = 0;
+		numTicks = 0;
+		clock = 0;
+		firstTickNanos = -1;
+		lastTickNanos = 0;
+	}
+
+	/**
+	 * Gets the name of a tag, qualified by its type as the tags of different types may share names.
+	 *
+	 * @param tag the tag, or null
+	 * @return the name
+	 */
+	private static String tagName(CloudSimTags tag) {
+		if (tag == null) {
+			return "none";
+		}
+		Class<?> type = tag instanceof Enum<?> constant ? constant.getDeclaringClass() : tag.getClass();
+		return type.getSimpleName() + "." + tag;
+	}
+}
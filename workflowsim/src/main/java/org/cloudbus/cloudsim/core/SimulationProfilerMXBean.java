@@ -0,0 +1,89 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface of a {@link SimulationProfiler}.
+ *
+ * @see SimulationProfiler#register(String)
+ */
+public interface SimulationProfilerMXBean {
+
+	/**
+	 * @return the number of events processed by the entities
+	 */
+	long getNumEvents();
+
+	/**
+	 * @return the number of ticks run
+	 */
+	long getNumTicks();
+
+	/**
+	 * @return the simulated time of the last tick
+	 */
+	double getClock();
+
+	/**
+	 * @return the wall time between the first and the last tick, in seconds
+	 */
+	double getWallTime();
+
+	/**
+	 * @return the number of events processed per second of simulated time
+	 */
+	double getEventsPerSimulatedSecond();
+
+	/**
+	 * @return the number of events processed per second of wall time
+	 */
+	double getEventsPerWallSecond();
+
+	/**
+	 * @return the number of events processed, per tag
+	 */
+	Map<String, Long> getEventCountsByTag();
+
+	/**
+	 * @return the number of events processed, per entity class
+	 */
+	Map<String, Long> getEventCountsByEntityClass();
+
+	/**
+	 * @return the nanoseconds spent processing events, per entity class
+	 */
+	Map<String, Long> getProcessingNanosByEntityClass();
+
+	/**
+	 * @return the median depth of the future event queue, sampled once per tick
+	 */
+	int getQueueDepthP50();
+
+	/**
+	 * @return the 90th percentile of the depth of the future event queue, sampled once per tick
+	 */
+	int getQueueDepthP90();
+
+	/**
+	 * @return the 99th percentile of the depth of the future event queue, sampled once per tick
+	 */
+	int getQueueDepthP99();
+
+	/**
+	 * @return the maximum depth of the future event queue, sampled once per tick
+	 */
+	int getQueueDepthMax();
+
+	/**
+	 * Clears the recorded counters and timings.
+	 */
+	void reset();
+}
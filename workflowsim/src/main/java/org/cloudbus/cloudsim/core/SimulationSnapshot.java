@@ -0,0 +1,136 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * A snapshot of a {@link Simulation} taken between two ticks, held in serialised form: the entities and all the
+ * objects they reference, such as the jobs and the schedulers of the VMs, the future events, the clock and the
+ * attached objects with the state of their random generators. Each restore creates an independent copy that continues
+ * from the time of the snapshot, so that a simulation can be forked into several branches that share the prefix
+ * before the snapshot.
+ * <p>
+ * The state outside the simulation is not part of the snapshot, such as the static fields, nor are its transient
+ * attributes. The id counters of the jobs, workflows and files are attached to the simulation, so a restored copy
+ * continues their numbering. Every object reachable from the simulation must be {@link java.io.Serializable}.
+ *
+ * @see Simulation#snapshot()
+ * @see Simulation#snapshotAt(double)
+ */
+public final class SimulationSnapshot {
+
+	/** The stack size of the threads that serialise a simulation, the graphs of the jobs are deep. */
+	private static final long STACK_SIZE = 512L << 20;
+
+	/** The serialised simulation. */
+	private final byte[] data;
+
+	/** The clock of the simulation when the snapshot was taken. */
+	private final double clock;
+
+	private SimulationSnapshot(byte[] data, double clock) {
+		this.data = data;
+		this.clock = clock;
+	}
+
+	/**
+	 * Takes a snapshot of a simulation, which must not be in the middle of a tick.
+	 *
+	 * @param simulation the simulation
+	 * @return the snapshot
+	 */
+	static SimulationSnapshot of(Simulation simulation) {
+		byte[] data = callWithLargeStack("take", () -> {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(simulation);
+			}
+			return bytes.toByteArray();
+		});
+		return new SimulationSnapshot(data, simulation.clock());
+	}
+
+	/**
+	 * Restores a new copy of the simulation. It is not the current simulation of any thread, the thread that runs it
+	 * must make it current with {@link Simulation#setCurrent(Simulation)} and then continue it with
+	 * {@link CloudSim#startSimulation()}.
+	 *
+	 * @return the simulation
+	 */
+	public Simulation restore() {
+		return callWithLargeStack("restore", () -> {
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+				return (Simulation) in.readObject();
+			}
+		});
+	}
+
+	/**
+	 * Restores several independent copies of the simulation.
+	 *
+	 * @param branchNum the number of copies
+	 * @return the simulations
+	 * @see #restore()
+	 */
+	public List<Simulation> fork(int branchNum) {
+		List<Simulation> simulations = new ArrayList<>(branchNum);
+		for (int i = 0; i < branchNum; i++) {
+			simulations.add(restore());
+		}
+		return simulations;
+	}
+
+	/**
+	 * @return the clock of the simulation when the snapshot was taken
+	 */
+	public double getClock() {
+		return clock;
+	}
+
+	/**
+	 * @return the size of the serialised simulation in bytes
+	 */
+	public int size() {
+		return data.length;
+	}
+
+	/**
+	 * Calls a task on a thread with a large stack, as the serialisation recurses along the references between the
+	 * objects.
+	 */
+	private static <T> T callWithLargeStack(String action, Callable<T> task) {
+		List<T> result = new ArrayList<>(1);
+		List<Throwable> error = new ArrayList<>(1);
+		Thread thread = new Thread(null, () -> {
+			try {
+				result.add(task.call());
+			} catch (Throwable e) {
+				error.add(e);
+			}
+		}, "SimulationSnapshot", STACK_SIZE);
+		thread.start();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(String.format("Interrupted while trying to %s a snapshot.", action), e);
+		}
+		if (!error.isEmpty()) {
+			throw new IllegalStateException(String.format("Failed to %s a snapshot.", action), error.get(0));
+		}
+		return result.get(0);
+	}
+}
@@ -10,6 +10,8 @@ package org.cloudbus.cloudsim.core.predicates;
 
 import org.cloudbus.cloudsim.core.SimEvent;
 
+import java.io.Serializable;
+
 /**
  * Predicates are used to select events from the deferred queue, according to
  * required criteria.
@@ -36,7 +38,7 @@ import org.cloudbus.cloudsim.core.SimEvent;
  * Maybe it was introduced with Java 8 (due to Stream and Lambda functions).
  *
  */
-public abstract class Predicate {
+public abstract class Predicate implements Serializable {
 
 	/**
          * Verifies if a given event matches the required criteria.
@@ -49,6 +49,15 @@ public class PredicateType extends Predicate {
 	 * @return {@inheritDoc}
          * @see #tags
 	 */
+	/**
+	 * Gets the tags matched by this predicate.
+	 *
+	 * @return the tags
+	 */
+	public CloudSimTags[] getTags() {
+		return tags.clone();
+	}
+
 	@Override
 	public boolean match(SimEvent ev) {
 		CloudSimTags tag = ev.getTag();
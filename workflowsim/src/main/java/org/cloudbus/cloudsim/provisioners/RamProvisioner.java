@@ -11,6 +11,8 @@ package org.cloudbus.cloudsim.provisioners;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.GuestEntity;
 
+import java.io.Serializable;
+
 /**
  * RamProvisioner is an abstract class that represents the provisioning policy used by a host
  * to allocate memory to virtual machines inside it. 
@@ -22,7 +24,7 @@ import org.cloudbus.cloudsim.core.GuestEntity;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public abstract class RamProvisioner {
+public abstract class RamProvisioner implements Serializable {
 
 	/** The total ram capacity from the host that the provisioner can allocate to VMs. */
 	private int ram;
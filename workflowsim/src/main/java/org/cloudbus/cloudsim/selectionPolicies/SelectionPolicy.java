@@ -7,6 +7,7 @@
 
 package org.cloudbus.cloudsim.selectionPolicies;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Set;
 
@@ -20,7 +21,7 @@ import java.util.Set;
  * @since CloudSim toolkit 7.0
  */
 
-public interface SelectionPolicy<T> {
+public interface SelectionPolicy<T> extends Serializable {
     /**
      * Select a host from the hostCandidates list, ignoring the hosts in the excluded list.
      *